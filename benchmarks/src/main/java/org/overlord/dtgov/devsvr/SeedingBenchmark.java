@@ -0,0 +1,116 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.DispatcherType;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.jboss.resteasy.plugins.server.servlet.HttpServletDispatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.overlord.sramp.client.SrampAtomApiClient;
+import org.overlord.sramp.repository.jcr.JCRRepository;
+import org.overlord.sramp.server.atom.services.SRAMPApplication;
+import org.overlord.sramp.server.filters.LocaleFilter;
+
+/**
+ * Benchmarks the S-RAMP seeding steps of {@link DTGovDevServer} against an
+ * embedded (in-memory) s-ramp server.  Every invocation adds another copy of
+ * the seed content to the repository, so these are single shot timings.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class SeedingBenchmark {
+
+    private Server server;
+    private SrampAtomApiClient client;
+
+    /**
+     * Starts the s-ramp server and uploads the ontology (which the
+     * deployments are classified against).
+     */
+    @Setup
+    public void setup() throws Exception {
+        System.setProperty("sramp.modeshape.config.url", "classpath://" + JCRRepository.class.getName() //$NON-NLS-1$ //$NON-NLS-2$
+                + "/META-INF/modeshape-configs/inmemory-sramp-config.json"); //$NON-NLS-1$
+        ServletContextHandler srampServer = new ServletContextHandler(ServletContextHandler.SESSIONS);
+        srampServer.setContextPath("/s-ramp-server"); //$NON-NLS-1$
+        ServletHolder resteasyServlet = new ServletHolder(new HttpServletDispatcher());
+        resteasyServlet.setInitParameter("javax.ws.rs.Application", SRAMPApplication.class.getName()); //$NON-NLS-1$
+        srampServer.addServlet(resteasyServlet, "/*"); //$NON-NLS-1$
+        srampServer.addFilter(LocaleFilter.class, "/*", EnumSet.of(DispatcherType.REQUEST)); //$NON-NLS-1$
+        server = new Server(0);
+        server.setHandler(srampServer);
+        server.start();
+
+        client = new SrampAtomApiClient("http://localhost:" + server.getConnectors()[0].getLocalPort() + "/s-ramp-server"); //$NON-NLS-1$ //$NON-NLS-2$
+        DTGovDevServer.seedOntology(client);
+    }
+
+    /**
+     * Stops the s-ramp server.
+     */
+    @TearDown
+    public void teardown() throws Exception {
+        server.stop();
+    }
+
+    @Benchmark
+    public void taskForm() throws Exception {
+        DTGovDevServer.seedTaskForm(client);
+    }
+
+    @Benchmark
+    public void expandedDeployment() throws Exception {
+        DTGovDevServer.seedDeployment(client, DTGovDevServer.SEED_DEPLOYMENTS[0]);
+    }
+
+    @Benchmark
+    public void deployment() throws Exception {
+        DTGovDevServer.seedDeployment(client, DTGovDevServer.SEED_DEPLOYMENTS[1]);
+    }
+
+    @Benchmark
+    public void workflowQueries() throws Exception {
+        DTGovDevServer.seedWorkflowQueries(client, 15);
+    }
+
+    @Benchmark
+    public void batch() throws Exception {
+        DTGovDevServer.seedBatch(client, 15);
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.mock;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.overlord.dtgov.ui.client.shared.beans.TaskActionEnum;
+import org.overlord.dtgov.ui.client.shared.beans.TaskBean;
+
+/**
+ * Benchmarks single task access on the mock task client:
+ * {@link MockTaskClient#getTask(String)} across the whole inbox, and
+ * {@link MockTaskClient#executeAction(TaskBean, TaskActionEnum)} with
+ * several threads claiming and releasing a small set of hot tasks.  Actions
+ * that lose the race (the task was changed by another thread) are counted
+ * as operations too - that is the contended path.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MockTaskAccessBenchmark {
+
+    /**
+     * The shared inbox.
+     */
+    @State(Scope.Benchmark)
+    public static class Inbox {
+
+        @Param({ "42", "10000", "100000" })
+        public int inboxSize;
+
+        private MockTaskClient client;
+
+        /**
+         * Generates the inbox.
+         */
+        @Setup
+        public void setup() {
+            System.setProperty(MockTaskGenerator.TASK_COUNT_PROPERTY, String.valueOf(inboxSize));
+            System.setProperty(MockTaskGenerator.TASK_SEED_PROPERTY, "42"); //$NON-NLS-1$
+            client = new MockTaskClient();
+        }
+    }
+
+    /**
+     * How many tasks the threads fight over.
+     */
+    @State(Scope.Benchmark)
+    public static class HotTasks {
+
+        @Param({ "1", "16" })
+        public int hotTasks;
+    }
+
+    /**
+     * Per-thread randomness (so the threads don't contend on that too).
+     */
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        private final Random random = new Random();
+    }
+
+    /**
+     * A random task by id.
+     * @param inbox
+     * @param random
+     */
+    @Benchmark
+    public TaskBean getTask(Inbox inbox, ThreadRandom random) {
+        return inbox.client.getTask(String.valueOf(random.random.nextInt(inbox.inboxSize)));
+    }
+
+    /**
+     * Claims or releases one of the hot tasks, from several threads at once.
+     * @param inbox
+     * @param hot
+     * @param random
+     */
+    @Benchmark
+    @Threads(8)
+    public Object executeAction(Inbox inbox, HotTasks hot, ThreadRandom random) {
+        String taskId = String.valueOf(random.random.nextInt(Math.min(hot.hotTasks, inbox.inboxSize)));
+        TaskBean task = inbox.client.getTask(taskId);
+        TaskActionEnum action = task.isActionAllowed(TaskActionEnum.claim) ? TaskActionEnum.claim : TaskActionEnum.release;
+        try {
+            return inbox.client.executeAction(task, action);
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.mock;
+
+import java.util.Calendar;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.overlord.dtgov.ui.client.shared.beans.TaskInboxFilterBean;
+import org.overlord.dtgov.ui.client.shared.beans.TaskInboxResultSetBean;
+
+/**
+ * Benchmarks {@link MockTaskClient#getTasks(TaskInboxFilterBean, int, int, String, boolean)}
+ * (and its keyset paging counterpart, {@link MockTaskClient#getTasksAfter})
+ * over each sort column and direction, with and without (indexed) filters, at
+ * different page offsets and inbox sizes.
+ *
+ * The mock task store is created when {@link MockTaskClient} is loaded, so
+ * every parameter combination needs its own fork (never run with -f 0).
+ *
+ * @author eric.wittmann@redhat.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MockTaskQueryBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({ "42", "10000", "100000" })
+    public int inboxSize;
+
+    @Param({ "name", "priority", "owner", "status", "dueOn" })
+    public String sortColumn;
+
+    @Param({ "true", "false" })
+    public boolean ascending;
+
+    @Param({ "none", "priority", "dueDate", "ownerStatus", "text" })
+    public String filter;
+
+    @Param({ "0", "1000" })
+    public int pageStart;
+
+    private MockTaskClient client;
+    private TaskInboxFilterBean filters;
+    private String columnId;
+    private String cursor;
+
+    /**
+     * Generates the inbox and sets up the query.
+     */
+    @Setup
+    public void setup() {
+        System.setProperty(MockTaskGenerator.TASK_COUNT_PROPERTY, String.valueOf(inboxSize));
+        System.setProperty(MockTaskGenerator.TASK_SEED_PROPERTY, "42"); //$NON-NLS-1$
+        client = new MockTaskClient();
+        columnId = MockTaskSortColumn.valueOf(sortColumn).getColumnId();
+        MockTaskFilterBean filters = new MockTaskFilterBean();
+        if ("priority".equals(filter)) { //$NON-NLS-1$
+            filters.setPriority(1);
+        } else if ("dueDate".equals(filter)) { //$NON-NLS-1$
+            // A month's worth of tasks (one is due per day)
+            Calendar cal = Calendar.getInstance();
+            cal.add(Calendar.DAY_OF_YEAR, -1);
+            filters.setDateDueFrom(cal.getTime());
+            cal.add(Calendar.DAY_OF_YEAR, 31);
+            filters.setDateDueTo(cal.getTime());
+        } else if ("ownerStatus".equals(filter)) { //$NON-NLS-1$
+            filters.setOwner("ewittman"); //$NON-NLS-1$
+            filters.setStatuses(EnumSet.of(MockTaskStatus.Ready, MockTaskStatus.Reserved));
+        } else if ("text".equals(filter)) { //$NON-NLS-1$
+            // Tasks 1, 10-19, 100-199, ...
+            filters.setText("task 1"); //$NON-NLS-1$
+        }
+        this.filters = filters;
+        if (pageStart > 0) {
+            cursor = client.getTasksAfter(filters, null, pageStart, columnId, ascending).getNextCursor();
+        }
+    }
+
+    /**
+     * One page of the inbox.
+     */
+    @Benchmark
+    public TaskInboxResultSetBean getTasks() throws Exception {
+        return client.getTasks(filters, pageStart, pageStart + PAGE_SIZE - 1, columnId, ascending);
+    }
+
+    /**
+     * The same page of the inbox, fetched with a cursor.
+     */
+    @Benchmark
+    public TaskInboxResultSetBean getTasksAfter() throws Exception {
+        return client.getTasksAfter(filters, cursor, PAGE_SIZE, columnId, ascending);
+    }
+
+}
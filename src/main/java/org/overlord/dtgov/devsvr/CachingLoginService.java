@@ -0,0 +1,170 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr;
+
+import java.security.Principal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.security.auth.Subject;
+
+import org.eclipse.jetty.security.HashLoginService;
+import org.eclipse.jetty.server.UserIdentity;
+import org.eclipse.jetty.util.security.Credential;
+
+/**
+ * The dev server's login service: any user name and password is accepted,
+ * and the user gets all of the overlord roles.
+ *
+ * With BASIC auth every request logs in again (including the Errai bus
+ * polls), so the identities are cached by user name and credential - a
+ * repeated login returns the same (read-only) identity instead of building
+ * a new subject and principals.  The cache is bounded (least recently used
+ * entries are dropped first) and entries expire after a while.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class CachingLoginService extends HashLoginService implements CachingLoginServiceMBean {
+
+    private static final String[] ROLES = new String[] { "overlorduser", "overlordadmin", "admin.sramp" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Map<String, CachedIdentity> cache;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Constructor.
+     * @param maxSize the maximum number of cached identities (0 disables the cache)
+     * @param ttlMillis how long an identity stays cached
+     */
+    public CachingLoginService(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.cache = new LinkedHashMap<String, CachedIdentity>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedIdentity> eldest) {
+                return size() > CachingLoginService.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @see org.eclipse.jetty.security.MappedLoginService#login(java.lang.String, java.lang.Object)
+     */
+    @Override
+    public UserIdentity login(String username, Object credentials) {
+        if (maxSize <= 0) {
+            misses.incrementAndGet();
+            return createIdentity(username, credentials);
+        }
+        String key = username + '\u0000' + credentials;
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            CachedIdentity cached = cache.get(key);
+            if (cached != null && cached.expires > now) {
+                hits.incrementAndGet();
+                return cached.identity;
+            }
+        }
+        misses.incrementAndGet();
+        UserIdentity identity = createIdentity(username, credentials);
+        synchronized (cache) {
+            cache.put(key, new CachedIdentity(identity, now + ttlMillis));
+        }
+        return identity;
+    }
+
+    /**
+     * Builds the identity for a user.
+     * @param username
+     * @param credentials
+     */
+    private UserIdentity createIdentity(String username, Object credentials) {
+        Credential credential = (credentials instanceof Credential) ? (Credential) credentials
+                : Credential.getCredential(credentials.toString());
+        Principal userPrincipal = new KnownUser(username, credential);
+        Subject subject = new Subject();
+        subject.getPrincipals().add(userPrincipal);
+        subject.getPrivateCredentials().add(credential);
+        for (String role : ROLES) {
+            subject.getPrincipals().add(new RolePrincipal(role));
+        }
+        subject.setReadOnly();
+        return _identityService.newUserIdentity(subject, userPrincipal, ROLES.clone());
+    }
+
+    /**
+     * @see org.overlord.dtgov.devsvr.CachingLoginServiceMBean#getHits()
+     */
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @see org.overlord.dtgov.devsvr.CachingLoginServiceMBean#getMisses()
+     */
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @see org.overlord.dtgov.devsvr.CachingLoginServiceMBean#getSize()
+     */
+    @Override
+    public int getSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * @see org.overlord.dtgov.devsvr.CachingLoginServiceMBean#reset()
+     */
+    @Override
+    public void reset() {
+        synchronized (cache) {
+            cache.clear();
+        }
+        hits.set(0);
+        misses.set(0);
+    }
+
+    /**
+     * A cached identity and when it expires.
+     */
+    private static class CachedIdentity {
+
+        private final UserIdentity identity;
+        private final long expires;
+
+        /**
+         * Constructor.
+         * @param identity
+         * @param expires
+         */
+        public CachedIdentity(UserIdentity identity, long expires) {
+            this.identity = identity;
+            this.expires = expires;
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr;
+
+/**
+ * JMX view of the dev server login service's identity cache.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public interface CachingLoginServiceMBean {
+
+    /**
+     * @return the number of logins answered from the cache
+     */
+    public long getHits();
+
+    /**
+     * @return the number of logins that had to build a new identity
+     */
+    public long getMisses();
+
+    /**
+     * @return the number of cached identities
+     */
+    public int getSize();
+
+    /**
+     * Empties the cache and resets the counters.
+     */
+    public void reset();
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
+
+import org.apache.commons.io.FileUtils;
+import org.overlord.commons.dev.server.discovery.IModuleDiscoveryStrategy;
+import org.overlord.commons.dev.server.discovery.ModuleDiscoveryContext;
+
+/**
+ * Caches the result of a (Maven) module discovery strategy, which unpacks
+ * the module's war/jar on every start.  The unpacked module is copied into
+ * a work directory keyed by the path, size and modification time of the
+ * artifact the module class was loaded from, and reused for as long as that
+ * artifact doesn't change.  Modules that aren't loaded from an archive (i.e.
+ * running from the IDE) are simply passed through to the wrapped strategy.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class CachingModuleDiscoveryStrategy implements IModuleDiscoveryStrategy {
+
+    private static final String STAMP_FILE = ".dtgov-devsvr-module"; //$NON-NLS-1$
+
+    private final Class<?> moduleClass;
+    private final IModuleDiscoveryStrategy delegate;
+    private final File cacheDir;
+
+    /**
+     * Constructor.
+     * @param moduleClass a class from the module's artifact
+     * @param delegate the strategy that does the actual discovery
+     * @param cacheDir where to keep the cached modules
+     */
+    public CachingModuleDiscoveryStrategy(Class<?> moduleClass, IModuleDiscoveryStrategy delegate, File cacheDir) {
+        this.moduleClass = moduleClass;
+        this.delegate = delegate;
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * @see org.overlord.commons.dev.server.discovery.IModuleDiscoveryStrategy#getName()
+     */
+    @Override
+    public String getName() {
+        return "Cached " + delegate.getName(); //$NON-NLS-1$
+    }
+
+    /**
+     * @see org.overlord.commons.dev.server.discovery.IModuleDiscoveryStrategy#discover(org.overlord.commons.dev.server.discovery.ModuleDiscoveryContext)
+     */
+    @Override
+    public File discover(ModuleDiscoveryContext context) {
+        File artifact = getArtifact();
+        if (artifact == null || !artifact.isFile()) {
+            return delegate.discover(context);
+        }
+        String stamp = artifact.getAbsolutePath() + "|" + artifact.length() + "|" + artifact.lastModified(); //$NON-NLS-1$ //$NON-NLS-2$
+        String prefix = moduleClass.getSimpleName() + "-"; //$NON-NLS-1$
+        File moduleDir = new File(cacheDir, prefix + Integer.toHexString(stamp.hashCode()));
+        File stampFile = new File(moduleDir, STAMP_FILE);
+        try {
+            if (stampFile.isFile() && stamp.equals(FileUtils.readFileToString(stampFile, "UTF-8"))) { //$NON-NLS-1$
+                return moduleDir;
+            }
+            File discovered = delegate.discover(context);
+            if (discovered == null) {
+                return null;
+            }
+            // Drop older versions of this module, then copy the new one in (stamp last, so a partial copy is never reused)
+            File[] stale = cacheDir.listFiles();
+            if (stale != null) {
+                for (File dir : stale) {
+                    if (dir.getName().startsWith(prefix)) {
+                        FileUtils.deleteDirectory(dir);
+                    }
+                }
+            }
+            FileUtils.copyDirectory(discovered, moduleDir);
+            FileUtils.writeStringToFile(stampFile, stamp, "UTF-8"); //$NON-NLS-1$
+            return moduleDir;
+        } catch (IOException e) {
+            System.out.println("Failed to cache module " + moduleClass.getName() + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+            return delegate.discover(context);
+        }
+    }
+
+    /**
+     * @return the file the module class was loaded from (a jar, or a
+     *         directory when running from the IDE), or null if unknown
+     */
+    private File getArtifact() {
+        CodeSource codeSource = moduleClass.getProtectionDomain().getCodeSource();
+        if (codeSource == null || codeSource.getLocation() == null) {
+            return null;
+        }
+        try {
+            return new File(codeSource.getLocation().toURI());
+        } catch (URISyntaxException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+}
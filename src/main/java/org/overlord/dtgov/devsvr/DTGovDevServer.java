@@ -15,33 +15,47 @@
  */
 package org.overlord.dtgov.devsvr;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.InputStream;
-import java.security.Principal;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.GregorianCalendar;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
 
-import javax.security.auth.Subject;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.servlet.DispatcherType;
+import javax.servlet.ServletContextEvent;
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
 import javax.xml.datatype.XMLGregorianCalendar;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.io.output.NullOutputStream;
 import org.eclipse.jetty.security.ConstraintMapping;
 import org.eclipse.jetty.security.ConstraintSecurityHandler;
-import org.eclipse.jetty.security.HashLoginService;
 import org.eclipse.jetty.security.SecurityHandler;
 import org.eclipse.jetty.security.authentication.BasicAuthenticator;
-import org.eclipse.jetty.server.UserIdentity;
+import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.handler.ContextHandlerCollection;
+import org.eclipse.jetty.server.handler.GzipHandler;
+import org.eclipse.jetty.servlet.FilterHolder;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
 import org.eclipse.jetty.util.security.Constraint;
-import org.eclipse.jetty.util.security.Credential;
+import org.jboss.errai.bus.server.service.ErraiServiceSingleton;
 import org.jboss.errai.bus.server.servlet.DefaultBlockingServlet;
+import org.jboss.errai.bus.server.servlet.JettyContinuationsServlet;
+import org.jboss.errai.bus.server.servlet.StandardAsyncServlet;
 import org.jboss.resteasy.plugins.server.servlet.HttpServletDispatcher;
 import org.jboss.weld.environment.servlet.BeanManagerResourceBindingListener;
 import org.jboss.weld.environment.servlet.Listener;
@@ -52,14 +66,31 @@ import org.overlord.commons.dev.server.DevServerEnvironment;
 import org.overlord.commons.dev.server.ErraiDevServer;
 import org.overlord.commons.dev.server.MultiDefaultServlet;
 import org.overlord.commons.dev.server.discovery.ErraiWebAppModuleFromMavenDiscoveryStrategy;
+import org.overlord.commons.dev.server.discovery.IModuleDiscoveryStrategy;
 import org.overlord.commons.dev.server.discovery.JarModuleFromIDEDiscoveryStrategy;
 import org.overlord.commons.dev.server.discovery.JarModuleFromMavenDiscoveryStrategy;
 import org.overlord.commons.dev.server.discovery.WebAppModuleFromIDEDiscoveryStrategy;
 import org.overlord.commons.gwt.server.filters.GWTCacheControlFilter;
 import org.overlord.commons.gwt.server.filters.ResourceCacheControlFilter;
 import org.overlord.commons.ui.header.OverlordHeaderDataJS;
+import org.overlord.dtgov.devsvr.faults.FaultInjectingDtgovClient;
+import org.overlord.dtgov.devsvr.faults.FaultInjectingTaskClient;
+import org.overlord.dtgov.devsvr.faults.FaultInjector;
+import org.overlord.dtgov.devsvr.load.LoadGenerator;
+import org.overlord.dtgov.devsvr.metrics.MetricsFilter;
+import org.overlord.dtgov.devsvr.metrics.MetricsServlet;
 import org.overlord.dtgov.devsvr.mock.MockDtgovClient;
+import org.overlord.dtgov.devsvr.mock.MockTaskChangeNotifier;
 import org.overlord.dtgov.devsvr.mock.MockTaskClient;
+import org.overlord.dtgov.devsvr.mock.MockTaskFormCache;
+import org.overlord.dtgov.devsvr.mock.MockTaskGenerator;
+import org.overlord.dtgov.devsvr.notifications.TaskChangeService;
+import org.overlord.dtgov.devsvr.servlets.CachingResourceServlet;
+import org.overlord.dtgov.devsvr.servlets.StreamingDeploymentDownloadServlet;
+import org.overlord.dtgov.devsvr.servlets.StreamingDeploymentUploadServlet;
+import org.overlord.dtgov.devsvr.servlets.TaskActionsServlet;
+import org.overlord.dtgov.devsvr.servlets.TaskFormServlet;
+import org.overlord.dtgov.devsvr.taskapi.LocalTaskApplication;
 import org.overlord.dtgov.ui.server.DtgovUI;
 import org.overlord.dtgov.ui.server.DtgovUIConfig;
 import org.overlord.dtgov.ui.server.services.sramp.NoAuthenticationProvider;
@@ -69,6 +100,7 @@ import org.overlord.dtgov.ui.server.servlets.DeploymentDownloadServlet;
 import org.overlord.dtgov.ui.server.servlets.DeploymentUploadServlet;
 import org.overlord.dtgov.ui.server.servlets.UiConfigurationServlet;
 import org.overlord.sramp.atom.archive.SrampArchive;
+import org.overlord.sramp.atom.archive.SrampArchiveEntry;
 import org.overlord.sramp.atom.archive.expand.DefaultMetaDataFactory;
 import org.overlord.sramp.atom.archive.expand.ZipToSrampArchive;
 import org.overlord.sramp.atom.archive.expand.registry.ZipToSrampArchiveRegistry;
@@ -76,6 +108,7 @@ import org.overlord.sramp.client.SrampAtomApiClient;
 import org.overlord.sramp.common.ArtifactType;
 import org.overlord.sramp.common.SrampModelUtils;
 import org.overlord.sramp.repository.jcr.JCRRepository;
+import org.overlord.sramp.repository.jcr.JCRRepositoryFactory;
 import org.overlord.sramp.server.atom.services.SRAMPApplication;
 import org.overlord.sramp.server.filters.LocaleFilter;
 
@@ -85,6 +118,38 @@ import org.overlord.sramp.server.filters.LocaleFilter;
  */
 public class DTGovDevServer extends ErraiDevServer {
 
+    private static final String SEED_MODE_BATCH = "batch"; //$NON-NLS-1$
+    private static final String REPOSITORY_FILE = "file"; //$NON-NLS-1$
+    private static final String RESOURCE_MODE_PRODUCTION = "production"; //$NON-NLS-1$
+    private static final String BUS_SERVLET_BLOCKING = "blocking"; //$NON-NLS-1$
+    private static final String BUS_SERVLET_ASYNC = "async"; //$NON-NLS-1$
+    private static final String BUS_SERVLET_CONTINUATIONS = "continuations"; //$NON-NLS-1$
+    private static final String JETTY_PROFILE_PRODUCTION = "production"; //$NON-NLS-1$
+    private static final int PRODUCTION_MAX_QUEUED = 10000;
+    private static final String[] JETTY_TUNING_OPTIONS = {
+        DTGovDevServerEnvironment.OPTION_JETTY_THREAD_POOL, DTGovDevServerEnvironment.OPTION_JETTY_MAX_QUEUED,
+        DTGovDevServerEnvironment.OPTION_JETTY_MIN_THREADS, DTGovDevServerEnvironment.OPTION_JETTY_MAX_THREADS,
+        DTGovDevServerEnvironment.OPTION_JETTY_ACCEPTORS, DTGovDevServerEnvironment.OPTION_JETTY_ACCEPT_QUEUE,
+        DTGovDevServerEnvironment.OPTION_JETTY_IDLE_TIMEOUT, DTGovDevServerEnvironment.OPTION_JETTY_LOW_RESOURCES_CONNECTIONS,
+        DTGovDevServerEnvironment.OPTION_JETTY_LOW_RESOURCES_IDLE_TIMEOUT };
+    private static final String GZIP_MIME_TYPES = "text/html,text/plain,text/css,text/xml,application/javascript,application/x-javascript,application/json,application/xml,application/atom+xml"; //$NON-NLS-1$
+    private static final String TASK_API_LOCAL = "local"; //$NON-NLS-1$
+
+    private static final String[] WORKFLOWS = {
+            "overlord.demo.SimpleReleaseProcess", //$NON-NLS-1$
+            "overlord.demo.SimplifiedProjectLifeCycle" //$NON-NLS-1$
+    };
+
+    static final SeedDeployment[] SEED_DEPLOYMENTS = {
+            new SeedDeployment("SwitchYard Application #1", "switchyard-app-1.jar", "1.0", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                    "http://www.jboss.org/overlord/deployment-status.owl#DevTest", true, //$NON-NLS-1$
+                    "my-property-1", "prop-val-1", "my-property-2", "prop-val-2"), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+            new SeedDeployment("SwitchYard Application #2", "switchyard-app-2.jar", "2.0", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                    "http://www.jboss.org/overlord/deployment-status.owl#DevPass", false), //$NON-NLS-1$
+            new SeedDeployment("SwitchYard Application #3", "switchyard-app-3.jar", "3.0", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                    "http://www.jboss.org/overlord/deployment-status.owl#ProdTest", false) //$NON-NLS-1$
+    };
+
     /**
      * Main entry point.
      * @param args
@@ -96,12 +161,19 @@ public class DTGovDevServer extends ErraiDevServer {
         devServer.go();
     }
 
+    private final DTGovDevServerEnvironment devEnvironment;
+    private FileRepositoryProfile fileRepository;
+    private final StartupTimings timings = new StartupTimings();
+    private FutureTask<Void> repositoryWarmup;
+
     /**
      * Constructor.
      * @param args
      */
     public DTGovDevServer(String [] args) {
         super(args);
+        // Created up front so that the dtgov options are available in preConfig()
+        devEnvironment = new DTGovDevServerEnvironment(args);
     }
 
     /**
@@ -117,12 +189,18 @@ public class DTGovDevServer extends ErraiDevServer {
      */
     @Override
     protected void preConfig() {
-        // Use an in-memory config for s-ramp
-        System.setProperty("sramp.modeshape.config.url", "classpath://" + JCRRepository.class.getName() //$NON-NLS-1$ //$NON-NLS-2$
-                + "/META-INF/modeshape-configs/inmemory-sramp-config.json"); //$NON-NLS-1$
+        timings.begin("configuration"); //$NON-NLS-1$
+        configureRepository();
+        if (isParallelStart()) {
+            startRepositoryWarmup();
+        }
 
-        // Don't do any resource caching!
-        System.setProperty("overlord.resource-caching.disabled", "true"); //$NON-NLS-1$ //$NON-NLS-2$
+        if (isProductionResourceMode()) {
+            System.out.println("Serving dtgov-ui resources in production mode (cached, with long-lived caching headers)."); //$NON-NLS-1$
+        } else {
+            // Don't do any resource caching!
+            System.setProperty("overlord.resource-caching.disabled", "true"); //$NON-NLS-1$ //$NON-NLS-2$
+        }
 
         // Configure the S-RAMP client
         System.setProperty(DtgovUIConfig.SRAMP_ATOM_API_ENDPOINT, "http://localhost:" + serverPort() + "/s-ramp-server"); //$NON-NLS-1$ //$NON-NLS-2$
@@ -137,12 +215,83 @@ public class DTGovDevServer extends ErraiDevServer {
         System.setProperty(DtgovUIConfig.WORKFLOW_ARTIFACT_VERSION_KEY, "1.4.0-SNAPSHOT"); //$NON-NLS-1$
         
         // Configure the task client
-        enableMockTaskClient();
-//        enableLiveTaskClient();
+        configureMockTasks();
+        if (isLocalTaskApi()) {
+            enableLiveTaskClient();
+        } else {
+            enableMockTaskClient();
+        }
         
         enableMockDtgovClient();
+        configureFaults();
 
         configureDeploymentsUI();
+        timings.end("configuration"); //$NON-NLS-1$
+    }
+
+    /**
+     * Configures the s-ramp repository: in-memory (the default), or on disk
+     * when the file profile is selected.
+     */
+    private void configureRepository() {
+        if (REPOSITORY_FILE.equals(devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_REPOSITORY))) {
+            fileRepository = new FileRepositoryProfile(new File(devEnvironment.getOption(
+                    DTGovDevServerEnvironment.OPTION_REPOSITORY_DIR, "target/sramp-repository"))); //$NON-NLS-1$
+            try {
+                System.setProperty("sramp.modeshape.config.url", fileRepository.configure()); //$NON-NLS-1$
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to configure the file based s-ramp repository.", e); //$NON-NLS-1$
+            }
+            System.out.println("Using the file based s-ramp repository in " + fileRepository.getDirectory()); //$NON-NLS-1$
+        } else {
+            // Use an in-memory config for s-ramp
+            System.setProperty("sramp.modeshape.config.url", "classpath://" + JCRRepository.class.getName() //$NON-NLS-1$ //$NON-NLS-2$
+                    + "/META-INF/modeshape-configs/inmemory-sramp-config.json"); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * @return true if the contexts should be started concurrently (and the repository warmed up in the background)
+     */
+    private boolean isParallelStart() {
+        return "true".equals(devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_PARALLEL_START)); //$NON-NLS-1$
+    }
+
+    /**
+     * Boots the (ModeShape) s-ramp repository in the background, while the
+     * modules are discovered and Jetty starts, rather than on the first
+     * seeding request.
+     */
+    private void startRepositoryWarmup() {
+        repositoryWarmup = new FutureTask<Void>(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                timings.begin("repository warmup"); //$NON-NLS-1$
+                try {
+                    JCRRepositoryFactory.logoutQuietly(JCRRepositoryFactory.getSession());
+                } finally {
+                    timings.end("repository warmup"); //$NON-NLS-1$
+                }
+                return null;
+            }
+        });
+        Thread thread = new Thread(repositoryWarmup, "sramp-repository-warmup"); //$NON-NLS-1$
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return true if the live task client should be used, against the dev server's own task API
+     */
+    private boolean isLocalTaskApi() {
+        return TASK_API_LOCAL.equals(devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_TASK_API));
+    }
+
+    /**
+     * @return true if the dtgov-ui resources should be served (and cached) the way they would be in production
+     */
+    private boolean isProductionResourceMode() {
+        return RESOURCE_MODE_PRODUCTION.equals(devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_RESOURCE_MODE));
     }
 
     /**
@@ -157,6 +306,42 @@ public class DTGovDevServer extends ErraiDevServer {
         System.setProperty(DtgovUIConfig.DEPLOYMENT_CLASSIFIER_STAGE_PREFIX + ".prod", "Production:http://www.jboss.org/overlord/deployment-status.owl#Prod"); //$NON-NLS-1$ //$NON-NLS-2$
     }
 
+    /**
+     * Passes the mock task options (number of generated tasks, random seed)
+     * on to the mock task client.
+     */
+    private void configureMockTasks() {
+        String taskCount = devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_MOCK_TASKS);
+        if (taskCount != null) {
+            System.setProperty(MockTaskGenerator.TASK_COUNT_PROPERTY, taskCount);
+        }
+        String seed = devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_MOCK_TASKS_SEED);
+        if (seed != null) {
+            System.setProperty(MockTaskGenerator.TASK_SEED_PROPERTY, seed);
+        }
+    }
+
+    /**
+     * Enables latency/failure injection when any <code>--faults.*</code>
+     * options were given: the options are passed on as system properties and
+     * the configured task and dtgov clients are wrapped by fault injecting
+     * ones.
+     */
+    private void configureFaults() {
+        Map<String, String> faults = devEnvironment.getOptions(DTGovDevServerEnvironment.OPTION_FAULTS_PREFIX);
+        if (faults.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, String> entry : faults.entrySet()) {
+            System.setProperty(FaultInjector.PROPERTY_PREFIX + entry.getKey(), entry.getValue());
+        }
+        System.setProperty(FaultInjectingTaskClient.DELEGATE_PROPERTY, System.getProperty(DtgovUIConfig.TASK_CLIENT_CLASS));
+        System.setProperty(DtgovUIConfig.TASK_CLIENT_CLASS, FaultInjectingTaskClient.class.getName());
+        System.setProperty(FaultInjectingDtgovClient.DELEGATE_PROPERTY, System.getProperty(DtgovUIConfig.DTGOV_CLIENT_CLASS));
+        System.setProperty(DtgovUIConfig.DTGOV_CLIENT_CLASS, FaultInjectingDtgovClient.class.getName());
+        System.out.println("Injecting faults into the task and dtgov clients: " + faults); //$NON-NLS-1$
+    }
+
     /**
      * Enables the mock task client (does not require jbpm or any sort of REST based task api endpoint).
      */
@@ -174,7 +359,7 @@ public class DTGovDevServer extends ErraiDevServer {
      */
     protected void enableLiveTaskClient() {
         System.setProperty(DtgovUIConfig.TASK_CLIENT_CLASS, DtGovTaskApiClient.class.getName());
-        System.setProperty(DtgovUIConfig.TASK_API_ENDPOINT, "http://localhost:8080/dtgov/rest/tasks"); //$NON-NLS-1$
+        System.setProperty(DtgovUIConfig.TASK_API_ENDPOINT, "http://localhost:" + serverPort() + "/dtgov/rest/tasks"); //$NON-NLS-1$ //$NON-NLS-2$
         System.setProperty(DtgovUIConfig.TASK_API_AUTH_PROVIDER, BasicAuthenticationProvider.class.getName());
         System.setProperty(DtgovUIConfig.TASK_API_BASIC_AUTH_USER, "eric"); //$NON-NLS-1$
         System.setProperty(DtgovUIConfig.TASK_API_BASIC_AUTH_PASS, "eric"); //$NON-NLS-1$
@@ -193,7 +378,7 @@ public class DTGovDevServer extends ErraiDevServer {
      */
     @Override
     protected DevServerEnvironment createDevEnvironment() {
-        return new DTGovDevServerEnvironment(args);
+        return devEnvironment;
     }
 
     /**
@@ -201,12 +386,28 @@ public class DTGovDevServer extends ErraiDevServer {
      */
     @Override
     protected void addModules(DevServerEnvironment environment) {
+        timings.begin("module discovery"); //$NON-NLS-1$
         environment.addModule("dtgov-ui", //$NON-NLS-1$
                 new WebAppModuleFromIDEDiscoveryStrategy(DtgovUI.class),
-                new ErraiWebAppModuleFromMavenDiscoveryStrategy(DtgovUI.class));
+                cached(DtgovUI.class, new ErraiWebAppModuleFromMavenDiscoveryStrategy(DtgovUI.class)));
         environment.addModule("overlord-commons-uiheader", //$NON-NLS-1$
                 new JarModuleFromIDEDiscoveryStrategy(OverlordHeaderDataJS.class, "src/main/resources/META-INF/resources"), //$NON-NLS-1$
-                new JarModuleFromMavenDiscoveryStrategy(OverlordHeaderDataJS.class, "/META-INF/resources")); //$NON-NLS-1$
+                cached(OverlordHeaderDataJS.class, new JarModuleFromMavenDiscoveryStrategy(OverlordHeaderDataJS.class, "/META-INF/resources"))); //$NON-NLS-1$
+        timings.end("module discovery"); //$NON-NLS-1$
+    }
+
+    /**
+     * Wraps a Maven discovery strategy so that the unpacked module is reused
+     * across starts (unless the module cache is disabled).
+     * @param moduleClass
+     * @param strategy
+     */
+    private IModuleDiscoveryStrategy cached(Class<?> moduleClass, IModuleDiscoveryStrategy strategy) {
+        String cacheDir = devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_MODULE_CACHE, "target/module-cache"); //$NON-NLS-1$
+        if ("none".equals(cacheDir)) { //$NON-NLS-1$
+            return strategy;
+        }
+        return new CachingModuleDiscoveryStrategy(moduleClass, strategy, new File(cacheDir));
     }
 
     /**
@@ -226,48 +427,243 @@ public class DTGovDevServer extends ErraiDevServer {
         dtgovUI.setInitParameter("errai.properties", "/WEB-INF/errai.properties"); //$NON-NLS-1$ //$NON-NLS-2$
         dtgovUI.setInitParameter("login.config", "/WEB-INF/login.config"); //$NON-NLS-1$ //$NON-NLS-2$
         dtgovUI.setInitParameter("users.properties", "/WEB-INF/users.properties"); //$NON-NLS-1$ //$NON-NLS-2$
-        dtgovUI.addEventListener(new Listener());
+        dtgovUI.addEventListener(new Listener() {
+            @Override
+            public void contextInitialized(ServletContextEvent event) {
+                timings.begin("weld bootstrap"); //$NON-NLS-1$
+                try {
+                    super.contextInitialized(event);
+                } finally {
+                    timings.end("weld bootstrap"); //$NON-NLS-1$
+                }
+            }
+        });
         dtgovUI.addEventListener(new BeanManagerResourceBindingListener());
+        addMetricsFilter(dtgovUI, "dtgov-ui"); //$NON-NLS-1$
         dtgovUI.addFilter(GWTCacheControlFilter.class, "/app/*", EnumSet.of(DispatcherType.REQUEST)); //$NON-NLS-1$
         dtgovUI.addFilter(ResourceCacheControlFilter.class, "/css/*", EnumSet.of(DispatcherType.REQUEST)); //$NON-NLS-1$
         dtgovUI.addFilter(ResourceCacheControlFilter.class, "/images/*", EnumSet.of(DispatcherType.REQUEST)); //$NON-NLS-1$
         dtgovUI.addFilter(ResourceCacheControlFilter.class, "/js/*", EnumSet.of(DispatcherType.REQUEST)); //$NON-NLS-1$
         dtgovUI.addFilter(org.overlord.dtgov.ui.server.filters.LocaleFilter.class, "/*", EnumSet.of(DispatcherType.REQUEST)); //$NON-NLS-1$
         // Servlets
-        ServletHolder erraiServlet = new ServletHolder(DefaultBlockingServlet.class);
+        ServletHolder erraiServlet = createErraiServlet();
         erraiServlet.setInitOrder(1);
         dtgovUI.addServlet(erraiServlet, "*.erraiBus"); //$NON-NLS-1$
         ServletHolder headerDataServlet = new ServletHolder(OverlordHeaderDataJS.class);
         headerDataServlet.setInitParameter("app-id", "dtgov"); //$NON-NLS-1$ //$NON-NLS-2$
         dtgovUI.addServlet(headerDataServlet, "/js/overlord-header-data.js"); //$NON-NLS-1$
-        dtgovUI.addServlet(new ServletHolder(DeploymentDownloadServlet.class), "/app/services/deploymentDownload"); //$NON-NLS-1$
-        dtgovUI.addServlet(new ServletHolder(DeploymentUploadServlet.class), "/app/services/deploymentUpload"); //$NON-NLS-1$
+        dtgovUI.addServlet(new ServletHolder(TaskFormServlet.class), "/app/services/taskForm"); //$NON-NLS-1$
+        dtgovUI.addServlet(new ServletHolder(TaskActionsServlet.class), "/app/services/taskActions"); //$NON-NLS-1$
+        if ("true".equals(devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_STREAMING_DEPLOYMENTS))) { //$NON-NLS-1$
+            dtgovUI.addServlet(new ServletHolder(StreamingDeploymentDownloadServlet.class), "/app/services/deploymentDownload"); //$NON-NLS-1$
+            dtgovUI.addServlet(new ServletHolder(StreamingDeploymentUploadServlet.class), "/app/services/deploymentUpload"); //$NON-NLS-1$
+        } else {
+            dtgovUI.addServlet(new ServletHolder(DeploymentDownloadServlet.class), "/app/services/deploymentDownload"); //$NON-NLS-1$
+            dtgovUI.addServlet(new ServletHolder(DeploymentUploadServlet.class), "/app/services/deploymentUpload"); //$NON-NLS-1$
+        }
         dtgovUI.addServlet(new ServletHolder(UiConfigurationServlet.class), "/js/dtgovui-configuration.js"); //$NON-NLS-1$
         // File resources
-        ServletHolder resources = new ServletHolder(new MultiDefaultServlet());
-        resources.setInitParameter("resourceBase", "/"); //$NON-NLS-1$ //$NON-NLS-2$
-        resources.setInitParameter("resourceBases", environment.getModuleDir("dtgov-ui").getCanonicalPath() //$NON-NLS-1$ //$NON-NLS-2$
-                + "|" + environment.getModuleDir("overlord-commons-uiheader").getCanonicalPath()); //$NON-NLS-1$ //$NON-NLS-2$
-        resources.setInitParameter("dirAllowed", "true"); //$NON-NLS-1$ //$NON-NLS-2$
-        resources.setInitParameter("pathInfoOnly", "false"); //$NON-NLS-1$ //$NON-NLS-2$
+        String resourceBases = environment.getModuleDir("dtgov-ui").getCanonicalPath() //$NON-NLS-1$
+                + "|" + environment.getModuleDir("overlord-commons-uiheader").getCanonicalPath(); //$NON-NLS-1$ //$NON-NLS-2$
+        ServletHolder resources;
+        if (isProductionResourceMode()) {
+            resources = new ServletHolder(new CachingResourceServlet());
+            resources.setInitParameter("resourceBases", resourceBases); //$NON-NLS-1$
+            resources.setInitParameter("maxAge", devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_RESOURCE_MAX_AGE, "3600")); //$NON-NLS-1$ //$NON-NLS-2$
+        } else {
+            resources = new ServletHolder(new MultiDefaultServlet());
+            resources.setInitParameter("resourceBase", "/"); //$NON-NLS-1$ //$NON-NLS-2$
+            resources.setInitParameter("resourceBases", resourceBases); //$NON-NLS-1$
+            resources.setInitParameter("dirAllowed", "true"); //$NON-NLS-1$ //$NON-NLS-2$
+            resources.setInitParameter("pathInfoOnly", "false"); //$NON-NLS-1$ //$NON-NLS-2$
+        }
         String[] fileTypes = new String[] { "html", "js", "css", "png", "gif" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
         for (String fileType : fileTypes) {
             dtgovUI.addServlet(resources, "*." + fileType); //$NON-NLS-1$
         }
 
+        if (!BUS_SERVLET_BLOCKING.equals(getBusServlet())) {
+            // Everything in front of the bus servlet has to allow async requests
+            for (FilterHolder filter : dtgovUI.getServletHandler().getFilters()) {
+                filter.setAsyncSupported(true);
+            }
+        }
+
         /* *************
          * S-RAMP server
          * ************* */
         ServletContextHandler srampServer = new ServletContextHandler(ServletContextHandler.SESSIONS);
         srampServer.setContextPath("/s-ramp-server"); //$NON-NLS-1$
+        addMetricsFilter(srampServer, "s-ramp-server"); //$NON-NLS-1$
         ServletHolder resteasyServlet = new ServletHolder(new HttpServletDispatcher());
         resteasyServlet.setInitParameter("javax.ws.rs.Application", SRAMPApplication.class.getName()); //$NON-NLS-1$
+        if (isParallelStart()) {
+            // Set up RESTEasy (providers, resources) while starting, not on the first request
+            resteasyServlet.setInitOrder(1);
+        }
         srampServer.addServlet(resteasyServlet, "/*"); //$NON-NLS-1$
         srampServer.addFilter(LocaleFilter.class, "/*", EnumSet.of(DispatcherType.REQUEST)); //$NON-NLS-1$
 
+        /* *************
+         * Metrics
+         * ************* */
+        ServletContextHandler metrics = new ServletContextHandler();
+        metrics.setContextPath("/metrics"); //$NON-NLS-1$
+        metrics.addServlet(new ServletHolder(MetricsServlet.class), "/"); //$NON-NLS-1$
+
+        if (isJettyTuned()) {
+            handlers.addHandler(createJettyTuningHandler());
+        }
+        handlers.addHandler(gzip(dtgovUI));
+        handlers.addHandler(gzip(srampServer));
+        handlers.addHandler(metrics);
+
+        /* *************
+         * Task API (stand-in for the dtgov one)
+         * ************* */
+        if (isLocalTaskApi()) {
+            ServletContextHandler taskApi = new ServletContextHandler();
+            taskApi.setContextPath("/dtgov"); //$NON-NLS-1$
+            addMetricsFilter(taskApi, "dtgov"); //$NON-NLS-1$
+            ServletHolder taskApiServlet = new ServletHolder(new HttpServletDispatcher());
+            taskApiServlet.setInitParameter("javax.ws.rs.Application", LocalTaskApplication.class.getName()); //$NON-NLS-1$
+            taskApiServlet.setInitParameter("resteasy.servlet.mapping.prefix", "/rest"); //$NON-NLS-1$ //$NON-NLS-2$
+            taskApi.addServlet(taskApiServlet, "/rest/*"); //$NON-NLS-1$
+            handlers.addHandler(taskApi);
+        }
+        handlers.setParallelStart(isParallelStart());
+        timings.begin("jetty start"); //$NON-NLS-1$
+    }
+
+    /**
+     * @return the errai bus servlet to use: the blocking one (default), the
+     *         Servlet 3 async one, or the Jetty continuations one
+     */
+    private ServletHolder createErraiServlet() {
+        String busServlet = getBusServlet();
+        ServletHolder erraiServlet;
+        if (BUS_SERVLET_ASYNC.equals(busServlet)) {
+            erraiServlet = new ServletHolder(StandardAsyncServlet.class);
+            erraiServlet.setAsyncSupported(true);
+        } else if (BUS_SERVLET_CONTINUATIONS.equals(busServlet)) {
+            erraiServlet = new ServletHolder(JettyContinuationsServlet.class);
+            erraiServlet.setAsyncSupported(true);
+        } else if (BUS_SERVLET_BLOCKING.equals(busServlet)) {
+            erraiServlet = new ServletHolder(DefaultBlockingServlet.class);
+        } else {
+            throw new IllegalArgumentException("Unknown bus servlet: " + busServlet); //$NON-NLS-1$
+        }
+        System.out.println("Using the " + busServlet + " errai bus servlet."); //$NON-NLS-1$ //$NON-NLS-2$
+        return erraiServlet;
+    }
+
+    /**
+     * @return the configured bus servlet type
+     */
+    private String getBusServlet() {
+        return devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_BUS_SERVLET, BUS_SERVLET_BLOCKING);
+    }
+
+    /**
+     * @return a handler that tunes Jetty's thread pool and connector
+     */
+    private JettyTuningHandler createJettyTuningHandler() {
+        JettyTuningHandler tuning = new JettyTuningHandler();
+        if (isProductionJettyProfile()) {
+            // Bounded queue: when overloaded, reject rather than queue without limit
+            tuning.setMaxQueued(PRODUCTION_MAX_QUEUED);
+        }
+        String value = devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_JETTY_THREAD_POOL);
+        if (value != null) {
+            tuning.setThreadPool(value);
+        }
+        value = devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_JETTY_MAX_QUEUED);
+        if (value != null) {
+            tuning.setMaxQueued(Integer.parseInt(value));
+        }
+        value = devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_JETTY_MIN_THREADS);
+        if (value != null) {
+            tuning.setMinThreads(Integer.parseInt(value));
+        }
+        value = devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_JETTY_MAX_THREADS);
+        if (value != null) {
+            tuning.setMaxThreads(Integer.parseInt(value));
+        }
+        value = devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_JETTY_ACCEPTORS);
+        if (value != null) {
+            tuning.setAcceptors(Integer.parseInt(value));
+        }
+        value = devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_JETTY_ACCEPT_QUEUE);
+        if (value != null) {
+            tuning.setAcceptQueueSize(Integer.parseInt(value));
+        }
+        value = devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_JETTY_IDLE_TIMEOUT);
+        if (value != null) {
+            tuning.setMaxIdleTime(Integer.parseInt(value));
+        }
+        value = devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_JETTY_LOW_RESOURCES_CONNECTIONS);
+        if (value != null) {
+            tuning.setLowResourcesConnections(Integer.parseInt(value));
+        }
+        value = devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_JETTY_LOW_RESOURCES_IDLE_TIMEOUT);
+        if (value != null) {
+            tuning.setLowResourcesMaxIdleTime(Integer.parseInt(value));
+        }
+        return tuning;
+    }
+
+    /**
+     * @return true if Jetty's thread pool or connector should be tuned: with
+     *         a non-blocking bus servlet, the production profile (bounded
+     *         queue) or any explicit pool, connector or timeout option
+     */
+    private boolean isJettyTuned() {
+        if (!BUS_SERVLET_BLOCKING.equals(getBusServlet()) || isProductionJettyProfile()) {
+            return true;
+        }
+        for (String option : JETTY_TUNING_OPTIONS) {
+            if (devEnvironment.getOption(option) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the production-like Jetty profile was selected
+     */
+    private boolean isProductionJettyProfile() {
+        return JETTY_PROFILE_PRODUCTION.equals(devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_JETTY_PROFILE));
+    }
 
-        handlers.addHandler(dtgovUI);
-        handlers.addHandler(srampServer);
+    /**
+     * Wraps a context in a gzip handler, if response compression is enabled
+     * (with <code>--jetty-gzip[=MIN_SIZE]</code> or the production profile).
+     * @param context
+     */
+    private Handler gzip(ServletContextHandler context) {
+        String minSize = devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_JETTY_GZIP,
+                isProductionJettyProfile() ? "true" : null); //$NON-NLS-1$
+        if (minSize == null || "false".equals(minSize)) { //$NON-NLS-1$
+            return context;
+        }
+        GzipHandler gzip = new GzipHandler();
+        gzip.setMimeTypes(GZIP_MIME_TYPES);
+        if (!"true".equals(minSize)) { //$NON-NLS-1$
+            gzip.setMinGzipSize(Integer.parseInt(minSize));
+        }
+        gzip.setHandler(context);
+        return gzip;
+    }
+
+    /**
+     * Adds the request metrics filter to a context (ahead of its other filters).
+     * @param context
+     * @param name the name to record the context's metrics under
+     */
+    private static void addMetricsFilter(ServletContextHandler context, String name) {
+        FilterHolder metricsFilter = context.addFilter(MetricsFilter.class, "/*", EnumSet.of(DispatcherType.REQUEST)); //$NON-NLS-1$
+        metricsFilter.setInitParameter("context", name); //$NON-NLS-1$
     }
 
     /**
@@ -275,25 +671,170 @@ public class DTGovDevServer extends ErraiDevServer {
      */
     @Override
     protected void postStart(DevServerEnvironment environment) throws Exception {
+        timings.end("jetty start"); //$NON-NLS-1$
+        startTaskChangeService();
         System.out.println("----------  Seeding  ---------------"); //$NON-NLS-1$
+        if (repositoryWarmup != null) {
+            // Seeding starts as soon as the repository is up (and fails the same way if it can't start)
+            repositoryWarmup.get();
+        }
+        timings.begin("seeding"); //$NON-NLS-1$
+
+        String seedMode = devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_SEED_MODE);
+        int queryCount = Integer.parseInt(devEnvironment.getOption(
+                DTGovDevServerEnvironment.OPTION_SEED_WORKFLOW_QUERIES, "15")); //$NON-NLS-1$
+        RepositorySnapshot snapshot = createSnapshot(seedMode, queryCount);
+        if (fileRepository != null && fileRepository.isSeeded()) {
+            System.out.println("Repository in " + fileRepository.getDirectory() + " was already seeded."); //$NON-NLS-1$ //$NON-NLS-2$
+        } else if (snapshot != null && snapshot.isCurrent()) {
+            long start = System.currentTimeMillis();
+            snapshot.restore();
+            System.out.println("Repository restored from snapshot " + snapshot.getDirectory() //$NON-NLS-1$
+                    + " in " + (System.currentTimeMillis() - start) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$
+        } else {
+            seed(seedMode, queryCount);
+            if (snapshot != null) {
+                snapshot.save();
+                System.out.println("Repository snapshot saved to " + snapshot.getDirectory()); //$NON-NLS-1$
+            }
+        }
+        if (fileRepository != null && !fileRepository.isSeeded()) {
+            fileRepository.markSeeded();
+        }
+        // Forms loaded before the task forms were seeded (fallbacks) are stale now
+        MockTaskFormCache.getInstance().clear();
+        timings.end("seeding"); //$NON-NLS-1$
+        timings.print();
 
-        SrampAtomApiClient client = new SrampAtomApiClient("http://localhost:"+serverPort()+"/s-ramp-server"); //$NON-NLS-1$ //$NON-NLS-2$
-        seedOntology(client);
-        seedTaskForm(client);
-        seedDeployments(client);
-        seedWorkflowQueries(client);
-        
         // TODO deploy everying in the CLI command file
         
         System.out.println("----------  DONE  ---------------"); //$NON-NLS-1$
         System.out.println("Now try:  \n  http://localhost:"+serverPort()+"/dtgov-ui/index.html"); //$NON-NLS-1$ //$NON-NLS-2$
         System.out.println("---------------------------------"); //$NON-NLS-1$
+
+        String loadMode = devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_LOAD);
+        if (loadMode != null) {
+            runLoad("true".equals(loadMode) ? LoadGenerator.MODE_CLOSED : loadMode); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Starts pushing task changes to the UI over the Errai bus (the bus
+     * servlet, and with it the Errai service, is started with Jetty).
+     */
+    private void startTaskChangeService() {
+        String delay = devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_TASK_CHANGE_DELAY);
+        if (delay != null) {
+            MockTaskChangeNotifier.getInstance().setDelay(Long.parseLong(delay));
+        }
+        try {
+            new TaskChangeService(ErraiServiceSingleton.getService().getBus()).start();
+        } catch (RuntimeException e) {
+            System.out.println("Task change notifications are not available: " + e); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Runs the built-in load generator against the (now started) server.
+     * The server keeps running afterwards.
+     * @param loadMode
+     */
+    private void runLoad(String loadMode) {
+        System.out.println("----------  Load  ---------------"); //$NON-NLS-1$
+        String report = devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_LOAD_REPORT, "target/load-report.json"); //$NON-NLS-1$
+        try {
+            new LoadGenerator("http://localhost:" + serverPort(), loadMode, //$NON-NLS-1$
+                    Integer.parseInt(devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_LOAD_THREADS, "8")), //$NON-NLS-1$
+                    Integer.parseInt(devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_LOAD_RATE, "100")), //$NON-NLS-1$
+                    Integer.parseInt(devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_LOAD_WARMUP, "10")), //$NON-NLS-1$
+                    Integer.parseInt(devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_LOAD_DURATION, "60")), //$NON-NLS-1$
+                    devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_LOAD_MIX), isLocalTaskApi(),
+                    "none".equals(report) ? null : new File(report)).run(); //$NON-NLS-1$
+        } catch (Exception e) {
+            System.err.println("Load run failed: " + e); //$NON-NLS-1$
+            e.printStackTrace();
+        }
+        System.out.println("---------------------------------"); //$NON-NLS-1$
+    }
+
+    /**
+     * Seeds the S-RAMP repository with sample content.
+     * @param seedMode
+     * @param queryCount
+     */
+    private void seed(String seedMode, final int queryCount) throws Exception {
+        SeedingPlan plan = new SeedingPlan(Integer.parseInt(devEnvironment.getOption(
+                DTGovDevServerEnvironment.OPTION_SEED_THREADS, "4"))); //$NON-NLS-1$
+        SeedingPlan.Step ontology = plan.add("ontology", new Callable<Void>() { //$NON-NLS-1$
+            @Override
+            public Void call() throws Exception {
+                seedOntology(createSrampClient());
+                return null;
+            }
+        });
+        if (SEED_MODE_BATCH.equals(seedMode)) {
+            // Everything but the ontology goes up in a single archive (classifiers need the ontology)
+            plan.add("batch", new Callable<Void>() { //$NON-NLS-1$
+                @Override
+                public Void call() throws Exception {
+                    seedBatch(createSrampClient(), queryCount);
+                    return null;
+                }
+            }, ontology);
+        } else {
+            plan.add("task form", new Callable<Void>() { //$NON-NLS-1$
+                @Override
+                public Void call() throws Exception {
+                    seedTaskForm(createSrampClient());
+                    return null;
+                }
+            });
+            // The deployments are classified using the ontology
+            for (final SeedDeployment deployment : SEED_DEPLOYMENTS) {
+                plan.add(deployment.name, new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        seedDeployment(createSrampClient(), deployment);
+                        return null;
+                    }
+                }, ontology);
+            }
+            plan.add("workflow queries", new Callable<Void>() { //$NON-NLS-1$
+                @Override
+                public Void call() throws Exception {
+                    seedWorkflowQueries(createSrampClient(), queryCount);
+                    return null;
+                }
+            });
+        }
+        plan.execute();
+    }
+
+    /**
+     * Creates the repository snapshot, if snapshots are enabled.
+     * @param seedMode
+     * @param queryCount
+     */
+    private RepositorySnapshot createSnapshot(String seedMode, int queryCount) throws Exception {
+        String snapshotDir = devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_SNAPSHOT);
+        if (snapshotDir == null) {
+            return null;
+        }
+        File directory = "true".equals(snapshotDir) ? new File("target", "sramp-snapshot") : new File(snapshotDir); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        List<String> seedResources = new ArrayList<String>();
+        seedResources.add("deployment-status.owl"); //$NON-NLS-1$
+        seedResources.add("mock-task.form.html"); //$NON-NLS-1$
+        for (SeedDeployment deployment : SEED_DEPLOYMENTS) {
+            seedResources.add(deployment.jarName);
+        }
+        String seedConfiguration = "mode=" + seedMode + ";workflow-queries=" + queryCount; //$NON-NLS-1$ //$NON-NLS-2$
+        return new RepositorySnapshot(directory, seedConfiguration, seedResources.toArray(new String[seedResources.size()]));
     }
 
     /**
      * @param client
      */
-    private void seedOntology(SrampAtomApiClient client) throws Exception {
+    static void seedOntology(SrampAtomApiClient client) throws Exception {
         InputStream is = null;
 
         // Ontology
@@ -309,15 +850,13 @@ public class DTGovDevServer extends ErraiDevServer {
     /**
      * @param client
      */
-    private void seedTaskForm(SrampAtomApiClient client) throws Exception {
+    static void seedTaskForm(SrampAtomApiClient client) throws Exception {
         InputStream is = null;
 
         try {
             is = DTGovDevServer.class.getResourceAsStream("mock-task.form.html"); //$NON-NLS-1$
             BaseArtifactType artifact = client.uploadArtifact(ArtifactType.XmlDocument(), is, "sample-task-taskform.xml"); //$NON-NLS-1$
-            artifact.setDescription("The starter task form that goes with the mock task client.  It maps to a task type of 'task-type-1'."); //$NON-NLS-1$
-            artifact.setVersion("1.0"); //$NON-NLS-1$
-            SrampModelUtils.setCustomProperty(artifact, "task-type", "mock-task"); //$NON-NLS-1$ //$NON-NLS-2$
+            applyTaskFormMetaData(artifact);
             client.updateArtifactMetaData(artifact);
             System.out.println("Task form added"); //$NON-NLS-1$
         } finally {
@@ -325,106 +864,259 @@ public class DTGovDevServer extends ErraiDevServer {
         }
     }
 
+    /**
+     * @param artifact
+     */
+    private static void applyTaskFormMetaData(BaseArtifactType artifact) {
+        artifact.setDescription("The starter task form that goes with the mock task client.  It maps to a task type of 'task-type-1'."); //$NON-NLS-1$
+        artifact.setVersion("1.0"); //$NON-NLS-1$
+        SrampModelUtils.setCustomProperty(artifact, "task-type", "mock-task"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
     /**
      * @param client
+     * @param count
      */
-    private void seedWorkflowQueries(SrampAtomApiClient client) throws Exception {
-        List<String> workflows = new ArrayList<String>();
-        workflows.add("overlord.demo.SimpleReleaseProcess"); //$NON-NLS-1$
-        workflows.add("overlord.demo.SimplifiedProjectLifeCycle"); //$NON-NLS-1$
-        for (int i = 0; i < 15; i++) {
-            ExtendedArtifactType toSave = new ExtendedArtifactType();
-            toSave.setArtifactType(BaseArtifactEnum.EXTENDED_ARTIFACT_TYPE);
-            toSave.setExtendedType("DtgovWorkflowQuery"); //$NON-NLS-1$
-            toSave.setName("Name" + i); //$NON-NLS-1$
-            toSave.setDescription("Description" + i); //$NON-NLS-1$
+    static void seedWorkflowQueries(SrampAtomApiClient client, int count) throws Exception {
+        XMLGregorianCalendar created = now();
+        for (int i = 0; i < count; i++) {
+            client.createArtifact(createWorkflowQuery(i, created));
+        }
+        System.out.println("Workflow queries added"); //$NON-NLS-1$
+    }
 
-            SrampModelUtils.setCustomProperty(toSave, "query", "s-ramp query " + i); //$NON-NLS-1$ //$NON-NLS-2$
+    /**
+     * Creates the meta-data for a sample workflow query.
+     * @param i
+     * @param created
+     */
+    private static ExtendedArtifactType createWorkflowQuery(int i, XMLGregorianCalendar created) {
+        ExtendedArtifactType toSave = new ExtendedArtifactType();
+        toSave.setArtifactType(BaseArtifactEnum.EXTENDED_ARTIFACT_TYPE);
+        toSave.setExtendedType("DtgovWorkflowQuery"); //$NON-NLS-1$
+        toSave.setName("Name" + i); //$NON-NLS-1$
+        toSave.setDescription("Description" + i); //$NON-NLS-1$
 
-            Double random = (Math.random() * workflows.size());
-            SrampModelUtils.setCustomProperty(toSave, "workflow", workflows.get(random.intValue())); //$NON-NLS-1$
+        SrampModelUtils.setCustomProperty(toSave, "query", "s-ramp query " + i); //$NON-NLS-1$ //$NON-NLS-2$
 
-            GregorianCalendar gcal = new GregorianCalendar();
-            gcal.setTime(new Date());
-            try {
-                XMLGregorianCalendar xmlCal = DatatypeFactory.newInstance().newXMLGregorianCalendar(gcal);
-                toSave.setCreatedTimestamp(xmlCal);
-            } catch (DatatypeConfigurationException ee) {
+        Double random = (Math.random() * WORKFLOWS.length);
+        SrampModelUtils.setCustomProperty(toSave, "workflow", WORKFLOWS[random.intValue()]); //$NON-NLS-1$
 
-            }
+        if (created != null) {
+            toSave.setCreatedTimestamp(created);
+        }
 
-            for (int j = 0; j < 5; j++) {
-                SrampModelUtils.setCustomProperty(toSave, "prop.propertyName" + j, "propertyValue" + j); //$NON-NLS-1$ //$NON-NLS-2$
-            }
-            client.createArtifact(toSave);
+        for (int j = 0; j < 5; j++) {
+            SrampModelUtils.setCustomProperty(toSave, "prop.propertyName" + j, "propertyValue" + j); //$NON-NLS-1$ //$NON-NLS-2$
         }
+        return toSave;
+    }
 
+    /**
+     * @return the current time, or null if no datatype factory is available
+     */
+    private static XMLGregorianCalendar now() {
+        GregorianCalendar gcal = new GregorianCalendar();
+        gcal.setTime(new Date());
+        try {
+            return DatatypeFactory.newInstance().newXMLGregorianCalendar(gcal);
+        } catch (DatatypeConfigurationException ee) {
+            return null;
+        }
     }
-    
-    
+
     /**
+     * Uploads a deployment, sets all of its meta-data in a single update and
+     * (optionally) expands it into its derived artifacts.  The jar is only
+     * read once: when it is expanded, a copy is tee'd off the upload.
      * @param client
+     * @param deployment
      */
-    private void seedDeployments(SrampAtomApiClient client) throws Exception {
+    static void seedDeployment(SrampAtomApiClient client, SeedDeployment deployment) throws Exception {
         InputStream is = null;
-
-        // Add switchyard app #1
+        File jar = null;
         ZipToSrampArchive expander = null;
-        SrampArchive archive = null;
         try {
-            is = DTGovDevServer.class.getResourceAsStream("switchyard-app-1.jar"); //$NON-NLS-1$
-            BaseArtifactType artifact = client.uploadArtifact(ArtifactType.ExtendedDocument("SwitchYardApplication"), is, "switchyard-app-1.jar"); //$NON-NLS-1$ //$NON-NLS-2$
-            artifact.setDescription("Nulla quis sem at nibh elementum imperdiet. Duis sagittis ipsum. Praesent mauris. Fusce nec tellus sed augue semper porta. Mauris massa. Vestibulum lacinia arcu eget nulla. Class aptent taciti sociosqu ad litora torquent per conubia nostra, per inceptos himenaeos. Curabitur sodales ligula in libero. Sed dignissim lacinia nunc."); //$NON-NLS-1$
-            artifact.setVersion("1.0"); //$NON-NLS-1$
-            artifact.getClassifiedBy().add("http://www.jboss.org/overlord/deployment-status.owl#DevTest"); //$NON-NLS-1$
-            client.updateArtifactMetaData(artifact);
-
-            SrampModelUtils.setCustomProperty(artifact, "my-property-1", "prop-val-1"); //$NON-NLS-1$ //$NON-NLS-2$
-            SrampModelUtils.setCustomProperty(artifact, "my-property-2", "prop-val-2"); //$NON-NLS-1$ //$NON-NLS-2$
+            if (deployment.expand) {
+                jar = File.createTempFile("dtgov-seed-", ".jar"); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+            is = openSeedResource(deployment.jarName, jar);
+            BaseArtifactType artifact = client.uploadArtifact(ArtifactType.ExtendedDocument("SwitchYardApplication"), is, deployment.jarName); //$NON-NLS-1$
+            applyDeploymentMetaData(artifact, deployment);
             client.updateArtifactMetaData(artifact);
 
-            // Now expand the deployment
-            ArtifactType type = ArtifactType.valueOf(artifact);
-            is.close();
-            is = DTGovDevServer.class.getResourceAsStream("switchyard-app-1.jar"); //$NON-NLS-1$
-            expander = ZipToSrampArchiveRegistry.createExpander(type, is);
-            expander.setContextParam(DefaultMetaDataFactory.PARENT_UUID, artifact.getUuid());
-            archive = expander.createSrampArchive();
-            client.uploadBatch(archive);
-
-            System.out.println("SwitchYard Application #1 added"); //$NON-NLS-1$
+            if (deployment.expand) {
+                // Now expand the deployment (from the copy)
+                ArtifactType type = ArtifactType.valueOf(artifact);
+                closeSeedResource(is);
+                expander = ZipToSrampArchiveRegistry.createExpander(type, jar);
+                expander.setContextParam(DefaultMetaDataFactory.PARENT_UUID, artifact.getUuid());
+                SrampArchive archive = expander.createSrampArchive();
+                client.uploadBatch(archive);
+            }
+            System.out.println(deployment.name + " added"); //$NON-NLS-1$
         } finally {
             IOUtils.closeQuietly(is);
             ZipToSrampArchive.closeQuietly(expander);
+            FileUtils.deleteQuietly(jar);
         }
+    }
 
-        // Add switchyard app #2
+    /**
+     * Opens a seed resource.  If a copy file is given, everything read from
+     * the stream is also written to it.
+     * @param resource
+     * @param copy
+     */
+    private static InputStream openSeedResource(String resource, File copy) throws Exception {
+        InputStream is = DTGovDevServer.class.getResourceAsStream(resource);
+        if (is == null) {
+            throw new Exception("Seed resource not found: " + resource); //$NON-NLS-1$
+        }
+        if (copy == null) {
+            return is;
+        }
         try {
-            is = DTGovDevServer.class.getResourceAsStream("switchyard-app-2.jar"); //$NON-NLS-1$
-            BaseArtifactType artifact = client.uploadArtifact(ArtifactType.ExtendedDocument("SwitchYardApplication"), is, "switchyard-app-2.jar"); //$NON-NLS-1$ //$NON-NLS-2$
-            artifact.setDescription("Nulla quis sem at nibh elementum imperdiet. Duis sagittis ipsum. Praesent mauris. Fusce nec tellus sed augue semper porta. Mauris massa. Vestibulum lacinia arcu eget nulla. Class aptent taciti sociosqu ad litora torquent per conubia nostra, per inceptos himenaeos. Curabitur sodales ligula in libero. Sed dignissim lacinia nunc."); //$NON-NLS-1$
-            artifact.setVersion("2.0"); //$NON-NLS-1$
-            artifact.getClassifiedBy().add("http://www.jboss.org/overlord/deployment-status.owl#DevPass"); //$NON-NLS-1$
-            client.updateArtifactMetaData(artifact);
-            System.out.println("SwitchYard Application #2 added"); //$NON-NLS-1$
-        } finally {
+            return new TeeInputStream(is, new FileOutputStream(copy), true);
+        } catch (Exception e) {
             IOUtils.closeQuietly(is);
+            throw e;
         }
+    }
+
+    /**
+     * Reads whatever is left of a seed resource (completing its copy, if it
+     * has one) and closes it.
+     * @param is
+     */
+    private static void closeSeedResource(InputStream is) throws Exception {
+        IOUtils.copy(is, new NullOutputStream());
+        is.close();
+    }
+
+    /**
+     * @param artifact
+     * @param deployment
+     */
+    private static void applyDeploymentMetaData(BaseArtifactType artifact, SeedDeployment deployment) {
+        artifact.setDescription("Nulla quis sem at nibh elementum imperdiet. Duis sagittis ipsum. Praesent mauris. Fusce nec tellus sed augue semper porta. Mauris massa. Vestibulum lacinia arcu eget nulla. Class aptent taciti sociosqu ad litora torquent per conubia nostra, per inceptos himenaeos. Curabitur sodales ligula in libero. Sed dignissim lacinia nunc."); //$NON-NLS-1$
+        artifact.setVersion(deployment.version);
+        artifact.getClassifiedBy().add(deployment.classifier);
+        for (int i = 0; i + 1 < deployment.properties.length; i += 2) {
+            SrampModelUtils.setCustomProperty(artifact, deployment.properties[i], deployment.properties[i + 1]);
+        }
+    }
 
-        // Add switchyard app #3
+    /**
+     * Seeds the task form, the deployments (including the expanded content
+     * of switchyard-app-1) and the workflow queries with a single batch
+     * upload.  Deployment UUIDs are assigned here so that their derived
+     * artifacts can point at them from within the same archive.
+     * @param client
+     * @param queryCount
+     */
+    static void seedBatch(SrampAtomApiClient client, int queryCount) throws Exception {
+        SrampArchive archive = new SrampArchive();
+        InputStream is = null;
         try {
-            is = DTGovDevServer.class.getResourceAsStream("switchyard-app-3.jar"); //$NON-NLS-1$
-            BaseArtifactType artifact = client.uploadArtifact(ArtifactType.ExtendedDocument("SwitchYardApplication"), is, "switchyard-app-3.jar"); //$NON-NLS-1$ //$NON-NLS-2$
-            artifact.setDescription("Nulla quis sem at nibh elementum imperdiet. Duis sagittis ipsum. Praesent mauris. Fusce nec tellus sed augue semper porta. Mauris massa. Vestibulum lacinia arcu eget nulla. Class aptent taciti sociosqu ad litora torquent per conubia nostra, per inceptos himenaeos. Curabitur sodales ligula in libero. Sed dignissim lacinia nunc."); //$NON-NLS-1$
-            artifact.setVersion("3.0"); //$NON-NLS-1$
-            artifact.getClassifiedBy().add("http://www.jboss.org/overlord/deployment-status.owl#ProdTest"); //$NON-NLS-1$
-            client.updateArtifactMetaData(artifact);
-            System.out.println("SwitchYard Application #3 added"); //$NON-NLS-1$
+            // Task form
+            try {
+                is = DTGovDevServer.class.getResourceAsStream("mock-task.form.html"); //$NON-NLS-1$
+                BaseArtifactType taskForm = ArtifactType.XmlDocument().newArtifactInstance();
+                taskForm.setName("sample-task-taskform.xml"); //$NON-NLS-1$
+                applyTaskFormMetaData(taskForm);
+                archive.addEntry("sample-task-taskform.xml", taskForm, is); //$NON-NLS-1$
+            } finally {
+                IOUtils.closeQuietly(is);
+            }
+
+            // Deployments
+            for (SeedDeployment deployment : SEED_DEPLOYMENTS) {
+                ArtifactType type = ArtifactType.ExtendedDocument("SwitchYardApplication"); //$NON-NLS-1$
+                BaseArtifactType artifact = type.newArtifactInstance();
+                artifact.setUuid(UUID.randomUUID().toString());
+                artifact.setName(deployment.jarName);
+                applyDeploymentMetaData(artifact, deployment);
+                File jar = null;
+                try {
+                    if (deployment.expand) {
+                        jar = File.createTempFile("dtgov-seed-", ".jar"); //$NON-NLS-1$ //$NON-NLS-2$
+                    }
+                    is = openSeedResource(deployment.jarName, jar);
+                    archive.addEntry(deployment.jarName, artifact, is);
+                    closeSeedResource(is);
+                    if (deployment.expand) {
+                        addExpandedEntries(archive, type, artifact, deployment.jarName, jar);
+                    }
+                } finally {
+                    IOUtils.closeQuietly(is);
+                    FileUtils.deleteQuietly(jar);
+                }
+            }
+
+            // Workflow queries (meta-data only)
+            XMLGregorianCalendar created = now();
+            for (int i = 0; i < queryCount; i++) {
+                archive.addEntry("workflow-queries/query-" + i, createWorkflowQuery(i, created), (InputStream) null); //$NON-NLS-1$
+            }
+
+            Map<String, ?> results = client.uploadBatch(archive);
+            Exception failure = null;
+            int failures = 0;
+            for (Object result : results.values()) {
+                if (result instanceof Exception) {
+                    failures++;
+                    if (failure == null) {
+                        failure = (Exception) result;
+                    }
+                }
+            }
+            if (failure != null) {
+                throw new Exception(failures + " of " + results.size() + " batch entries failed.", failure); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+            System.out.println("Batch of " + results.size() + " artifacts added"); //$NON-NLS-1$ //$NON-NLS-2$
         } finally {
-            IOUtils.closeQuietly(is);
+            SrampArchive.closeQuietly(archive);
         }
     }
 
+    /**
+     * Expands a deployment and adds its derived artifacts to the given archive.
+     * @param archive
+     * @param type
+     * @param artifact
+     * @param jarName
+     * @param jar a local copy of the deployment
+     */
+    private static void addExpandedEntries(SrampArchive archive, ArtifactType type, BaseArtifactType artifact, String jarName,
+            File jar) throws Exception {
+        ZipToSrampArchive expander = null;
+        SrampArchive expanded = null;
+        try {
+            expander = ZipToSrampArchiveRegistry.createExpander(type, jar);
+            expander.setContextParam(DefaultMetaDataFactory.PARENT_UUID, artifact.getUuid());
+            expanded = expander.createSrampArchive();
+            for (SrampArchiveEntry entry : expanded.getEntries()) {
+                InputStream content = expanded.getInputStream(entry);
+                try {
+                    archive.addEntry(jarName + "/" + entry.getPath(), entry.getMetaData(), content); //$NON-NLS-1$
+                } finally {
+                    IOUtils.closeQuietly(content);
+                }
+            }
+        } finally {
+            SrampArchive.closeQuietly(expanded);
+            ZipToSrampArchive.closeQuietly(expander);
+        }
+    }
+
+    /**
+     * @return a new S-RAMP client for the embedded s-ramp server
+     */
+    private SrampAtomApiClient createSrampClient() throws Exception {
+        return new SrampAtomApiClient("http://localhost:"+serverPort()+"/s-ramp-server"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
     /**
      * @return a security handler
      */
@@ -445,25 +1137,63 @@ public class DTGovDevServer extends ErraiDevServer {
         if (forUI) {
             csh.addConstraintMapping(cm);
         }
-        csh.setLoginService(new HashLoginService() {
-            @Override
-            public UserIdentity login(String username, Object credentials) {
-                Credential credential = (credentials instanceof Credential) ? (Credential) credentials
-                        : Credential.getCredential(credentials.toString());
-                Principal userPrincipal = new KnownUser(username, credential);
-                Subject subject = new Subject();
-                subject.getPrincipals().add(userPrincipal);
-                subject.getPrivateCredentials().add(credential);
-                String[] roles = new String[] { "overlorduser", "overlordadmin", "admin.sramp" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-                for (String role : roles) {
-                    subject.getPrincipals().add(new RolePrincipal(role));
-                }
-                subject.setReadOnly();
-                return _identityService.newUserIdentity(subject, userPrincipal, roles);
-            }
-        });
+        CachingLoginService loginService = new CachingLoginService(
+                Integer.parseInt(devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_LOGIN_CACHE_SIZE, "1000")), //$NON-NLS-1$
+                Long.parseLong(devEnvironment.getOption(DTGovDevServerEnvironment.OPTION_LOGIN_CACHE_TTL, "300")) * 1000); //$NON-NLS-1$
+        registerMBean(loginService, "org.overlord.dtgov.devsvr:type=LoginService,context=" + (forUI ? "dtgov-ui" : "s-ramp-server")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        csh.setLoginService(loginService);
 
         return csh;
     }
 
+    /**
+     * Registers an MBean with the platform MBean server (failures are only reported).
+     * @param mbean
+     * @param name
+     */
+    private static void registerMBean(Object mbean, String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(mbean, objectName);
+        } catch (Exception e) {
+            System.err.println("Failed to register MBean " + name + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+    }
+
+    /**
+     * A sample deployment to seed the repository with.
+     */
+    static class SeedDeployment {
+
+        private final String name;
+        private final String jarName;
+        private final String version;
+        private final String classifier;
+        private final boolean expand;
+        private final String[] properties;
+
+        /**
+         * Constructor.
+         * @param name
+         * @param jarName
+         * @param version
+         * @param classifier
+         * @param expand
+         * @param properties custom property names and values
+         */
+        public SeedDeployment(String name, String jarName, String version, String classifier, boolean expand,
+                String ... properties) {
+            this.name = name;
+            this.jarName = jarName;
+            this.version = version;
+            this.classifier = classifier;
+            this.expand = expand;
+            this.properties = properties;
+        }
+    }
+
 }
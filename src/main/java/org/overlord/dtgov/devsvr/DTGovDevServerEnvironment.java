@@ -15,20 +15,111 @@
  */
 package org.overlord.dtgov.devsvr;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.overlord.commons.dev.server.DevServerEnvironment;
 
 /**
+ * The dtgov dev server environment.  In addition to the standard dev server
+ * arguments, this understands dtgov specific options of the form
+ * <code>--name=value</code> (or just <code>--name</code> for flags).
  *
  * @author eric.wittmann@redhat.com
  */
 public class DTGovDevServerEnvironment extends DevServerEnvironment {
 
+    public static final String OPTION_MOCK_TASKS = "mock-tasks"; //$NON-NLS-1$
+    public static final String OPTION_MOCK_TASKS_SEED = "mock-tasks-seed"; //$NON-NLS-1$
+    public static final String OPTION_SEED_THREADS = "seed-threads"; //$NON-NLS-1$
+    public static final String OPTION_SEED_MODE = "seed-mode"; //$NON-NLS-1$
+    public static final String OPTION_SEED_WORKFLOW_QUERIES = "seed-workflow-queries"; //$NON-NLS-1$
+    public static final String OPTION_SNAPSHOT = "snapshot"; //$NON-NLS-1$
+    public static final String OPTION_REPOSITORY = "repository"; //$NON-NLS-1$
+    public static final String OPTION_REPOSITORY_DIR = "repository-dir"; //$NON-NLS-1$
+    public static final String OPTION_STREAMING_DEPLOYMENTS = "streaming-deployments"; //$NON-NLS-1$
+    public static final String OPTION_RESOURCE_MODE = "resource-mode"; //$NON-NLS-1$
+    public static final String OPTION_RESOURCE_MAX_AGE = "resource-max-age"; //$NON-NLS-1$
+    public static final String OPTION_LOGIN_CACHE_SIZE = "login-cache-size"; //$NON-NLS-1$
+    public static final String OPTION_LOGIN_CACHE_TTL = "login-cache-ttl"; //$NON-NLS-1$
+    public static final String OPTION_LOAD = "load"; //$NON-NLS-1$
+    public static final String OPTION_LOAD_THREADS = "load-threads"; //$NON-NLS-1$
+    public static final String OPTION_LOAD_RATE = "load-rate"; //$NON-NLS-1$
+    public static final String OPTION_LOAD_WARMUP = "load-warmup"; //$NON-NLS-1$
+    public static final String OPTION_LOAD_DURATION = "load-duration"; //$NON-NLS-1$
+    public static final String OPTION_LOAD_MIX = "load-mix"; //$NON-NLS-1$
+    public static final String OPTION_LOAD_REPORT = "load-report"; //$NON-NLS-1$
+    public static final String OPTION_TASK_API = "task-api"; //$NON-NLS-1$
+    public static final String OPTION_BUS_SERVLET = "bus-servlet"; //$NON-NLS-1$
+    public static final String OPTION_JETTY_PROFILE = "jetty-profile"; //$NON-NLS-1$
+    public static final String OPTION_JETTY_THREAD_POOL = "jetty-thread-pool"; //$NON-NLS-1$
+    public static final String OPTION_JETTY_MAX_QUEUED = "jetty-max-queued"; //$NON-NLS-1$
+    public static final String OPTION_JETTY_GZIP = "jetty-gzip"; //$NON-NLS-1$
+    public static final String OPTION_JETTY_MIN_THREADS = "jetty-min-threads"; //$NON-NLS-1$
+    public static final String OPTION_JETTY_MAX_THREADS = "jetty-max-threads"; //$NON-NLS-1$
+    public static final String OPTION_JETTY_ACCEPTORS = "jetty-acceptors"; //$NON-NLS-1$
+    public static final String OPTION_JETTY_ACCEPT_QUEUE = "jetty-accept-queue"; //$NON-NLS-1$
+    public static final String OPTION_JETTY_IDLE_TIMEOUT = "jetty-idle-timeout"; //$NON-NLS-1$
+    public static final String OPTION_JETTY_LOW_RESOURCES_CONNECTIONS = "jetty-low-resources-connections"; //$NON-NLS-1$
+    public static final String OPTION_JETTY_LOW_RESOURCES_IDLE_TIMEOUT = "jetty-low-resources-idle-timeout"; //$NON-NLS-1$
+    public static final String OPTION_PARALLEL_START = "parallel-start"; //$NON-NLS-1$
+    public static final String OPTION_MODULE_CACHE = "module-cache"; //$NON-NLS-1$
+    public static final String OPTION_FAULTS_PREFIX = "faults."; //$NON-NLS-1$
+    public static final String OPTION_TASK_CHANGE_DELAY = "task-change-delay"; //$NON-NLS-1$
+
+    private final Map<String, String> options = new HashMap<String, String>();
+
     /**
      * Constructor.
      * @param args
      */
     public DTGovDevServerEnvironment(String[] args) {
         super(args);
+        if (args != null) {
+            for (String arg : args) {
+                if (arg.startsWith("--")) { //$NON-NLS-1$
+                    int idx = arg.indexOf('=');
+                    if (idx == -1) {
+                        options.put(arg.substring(2), "true"); //$NON-NLS-1$
+                    } else {
+                        options.put(arg.substring(2, idx), arg.substring(idx + 1));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the value of a dtgov option, or null if it was not given.
+     * @param name
+     */
+    public String getOption(String name) {
+        return options.get(name);
+    }
+
+    /**
+     * Returns the value of a dtgov option, or the default if it was not given.
+     * @param name
+     * @param defaultValue
+     */
+    public String getOption(String name, String defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Returns all of the dtgov options whose names start with the given
+     * prefix (keyed by the rest of the name).
+     * @param prefix
+     */
+    public Map<String, String> getOptions(String prefix) {
+        Map<String, String> rval = new HashMap<String, String>();
+        for (Map.Entry<String, String> entry : options.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                rval.put(entry.getKey().substring(prefix.length()), entry.getValue());
+            }
+        }
+        return rval;
     }
 
 }
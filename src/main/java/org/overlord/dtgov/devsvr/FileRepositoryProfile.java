@@ -0,0 +1,143 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.infinispan.schematic.document.EditableDocument;
+import org.infinispan.schematic.document.Editor;
+import org.infinispan.schematic.document.Json;
+import org.modeshape.jcr.RepositoryConfiguration;
+import org.modeshape.jcr.RepositoryConfiguration.FieldName;
+import org.modeshape.jcr.RepositoryConfiguration.FieldValue;
+import org.overlord.sramp.repository.jcr.JCRRepository;
+
+/**
+ * A disk-backed S-RAMP repository for the dev server.  The ModeShape
+ * configuration is derived from the standard in-memory one, with the node
+ * content kept in an Infinispan file cache store (only a bounded number of
+ * nodes are held on the heap), and the binaries and indexes on the file
+ * system - all within a single working directory that survives restarts.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class FileRepositoryProfile {
+
+    private static final String INMEMORY_CONFIG = "/META-INF/modeshape-configs/inmemory-sramp-config.json"; //$NON-NLS-1$
+    private static final String CACHE_NAME = "sramp"; //$NON-NLS-1$
+    private static final String SEEDED_MARKER = "seeded"; //$NON-NLS-1$
+    private static final int MAX_CACHED_NODES = 10000;
+
+    private final File directory;
+
+    /**
+     * Constructor.
+     * @param directory the repository's working directory
+     */
+    public FileRepositoryProfile(File directory) {
+        this.directory = directory.getAbsoluteFile();
+    }
+
+    /**
+     * Writes the ModeShape and Infinispan configuration into the working
+     * directory (every time, so that changes to the profile take effect).
+     * @return the URL of the generated ModeShape configuration
+     * @throws Exception
+     */
+    public String configure() throws Exception {
+        FileUtils.forceMkdir(directory);
+        File cacheConfig = new File(directory, "infinispan-config.xml"); //$NON-NLS-1$
+        FileUtils.writeStringToFile(cacheConfig, createCacheConfig(new File(directory, "store")), "UTF-8"); //$NON-NLS-1$ //$NON-NLS-2$
+
+        URL inmemoryConfig = JCRRepository.class.getResource(INMEMORY_CONFIG);
+        if (inmemoryConfig == null) {
+            throw new IOException("ModeShape configuration not found: " + INMEMORY_CONFIG); //$NON-NLS-1$
+        }
+        Editor editor = RepositoryConfiguration.read(inmemoryConfig).edit();
+        EditableDocument storage = editor.getOrCreateDocument(FieldName.STORAGE);
+        storage.setString(FieldName.CACHE_NAME, CACHE_NAME);
+        storage.setString(FieldName.CACHE_CONFIGURATION, cacheConfig.getPath());
+        EditableDocument binaries = storage.getOrCreateDocument(FieldName.BINARY_STORAGE);
+        binaries.setString(FieldName.TYPE, FieldValue.BINARY_STORAGE_TYPE_FILE);
+        binaries.setString(FieldName.DIRECTORY, new File(directory, "binaries").getPath()); //$NON-NLS-1$
+        EditableDocument indexes = editor.getOrCreateDocument(FieldName.QUERY).getOrCreateDocument(FieldName.INDEX_STORAGE);
+        indexes.setString(FieldName.TYPE, FieldValue.INDEX_STORAGE_FILESYSTEM);
+        indexes.setString(FieldName.INDEX_STORAGE_LOCATION, new File(directory, "indexes").getPath()); //$NON-NLS-1$
+
+        File repositoryConfig = new File(directory, "sramp-config.json"); //$NON-NLS-1$
+        OutputStream os = new FileOutputStream(repositoryConfig);
+        try {
+            Json.write(editor, os);
+        } finally {
+            IOUtils.closeQuietly(os);
+        }
+        return repositoryConfig.toURI().toURL().toString();
+    }
+
+    /**
+     * @return true if the repository was seeded during an earlier run
+     */
+    public boolean isSeeded() {
+        return new File(directory, SEEDED_MARKER).isFile();
+    }
+
+    /**
+     * Records that the repository has been seeded, so later runs don't seed
+     * it again (and duplicate the sample content).
+     * @throws IOException
+     */
+    public void markSeeded() throws IOException {
+        FileUtils.writeStringToFile(new File(directory, SEEDED_MARKER), String.valueOf(System.currentTimeMillis()), "UTF-8"); //$NON-NLS-1$
+    }
+
+    /**
+     * @return the working directory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Creates the Infinispan configuration for the repository cache.
+     * @param storeDir
+     */
+    private static String createCacheConfig(File storeDir) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + //$NON-NLS-1$
+                "<infinispan xmlns=\"urn:infinispan:config:5.2\">\n" + //$NON-NLS-1$
+                "  <global />\n" + //$NON-NLS-1$
+                "  <default />\n" + //$NON-NLS-1$
+                "  <namedCache name=\"" + CACHE_NAME + "\">\n" + //$NON-NLS-1$ //$NON-NLS-2$
+                "    <transaction transactionManagerLookupClass=\"org.infinispan.transaction.lookup.GenericTransactionManagerLookup\"\n" + //$NON-NLS-1$
+                "                 transactionMode=\"TRANSACTIONAL\" lockingMode=\"PESSIMISTIC\" />\n" + //$NON-NLS-1$
+                "    <eviction strategy=\"LIRS\" maxEntries=\"" + MAX_CACHED_NODES + "\" />\n" + //$NON-NLS-1$ //$NON-NLS-2$
+                "    <loaders passivation=\"false\" shared=\"false\" preload=\"false\">\n" + //$NON-NLS-1$
+                "      <loader class=\"org.infinispan.loaders.file.FileCacheStore\" fetchPersistentState=\"false\" purgeOnStartup=\"false\">\n" + //$NON-NLS-1$
+                "        <properties>\n" + //$NON-NLS-1$
+                "          <property name=\"location\" value=\"" + storeDir.getPath() + "\" />\n" + //$NON-NLS-1$ //$NON-NLS-2$
+                "        </properties>\n" + //$NON-NLS-1$
+                "      </loader>\n" + //$NON-NLS-1$
+                "    </loaders>\n" + //$NON-NLS-1$
+                "  </namedCache>\n" + //$NON-NLS-1$
+                "</infinispan>\n"; //$NON-NLS-1$
+    }
+
+}
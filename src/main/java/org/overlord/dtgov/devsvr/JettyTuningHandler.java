@@ -0,0 +1,211 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr;
+
+import java.io.IOException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
+import org.eclipse.jetty.util.thread.ExecutorThreadPool;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+/**
+ * Tunes the Jetty server's thread pool and connector.  The dev server
+ * framework creates (and starts) the Jetty server itself, so this is added
+ * to the server's handlers as a hook: when the handlers are given to the
+ * server, the server is configured before it is started.  It never handles
+ * any requests.
+ *
+ * The thread pool is either Jetty's own queued pool (optionally with a
+ * bounded job queue, so that overload is rejected instead of queued without
+ * limit) or an executor based one that hands each job straight to a
+ * (possibly new) thread, which is as close as Java 6 gets to a thread per
+ * request.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class JettyTuningHandler extends AbstractHandler {
+
+    public static final String THREAD_POOL_QUEUED = "queued"; //$NON-NLS-1$
+    public static final String THREAD_POOL_EXECUTOR = "executor"; //$NON-NLS-1$
+
+    private String threadPool = THREAD_POOL_QUEUED;
+    private int maxQueued = -1;
+    private int minThreads = 8;
+    private int maxThreads = 200;
+    private int acceptors = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private int acceptQueueSize = 1024;
+    private int maxIdleTime = 60000;
+    private int lowResourcesConnections = -1;
+    private int lowResourcesMaxIdleTime = -1;
+    private boolean configured;
+
+    /**
+     * Constructor.
+     */
+    public JettyTuningHandler() {
+    }
+
+    /**
+     * @see org.eclipse.jetty.server.handler.AbstractHandler#setServer(org.eclipse.jetty.server.Server)
+     */
+    @Override
+    public void setServer(Server server) {
+        super.setServer(server);
+        if (server != null && !configured) {
+            configure(server);
+            configured = true;
+        }
+    }
+
+    /**
+     * Configures the server.
+     * @param server
+     */
+    protected void configure(Server server) {
+        server.setThreadPool(createThreadPool());
+        Connector[] connectors = server.getConnectors();
+        if (connectors != null) {
+            for (Connector connector : connectors) {
+                if (connector instanceof SelectChannelConnector) {
+                    SelectChannelConnector nioConnector = (SelectChannelConnector) connector;
+                    nioConnector.setAcceptors(acceptors);
+                    nioConnector.setAcceptQueueSize(acceptQueueSize);
+                    nioConnector.setMaxIdleTime(maxIdleTime);
+                    if (lowResourcesConnections > 0) {
+                        // Under pressure, drop idle connections (e.g. abandoned bus polls) sooner
+                        nioConnector.setLowResourcesConnections(lowResourcesConnections);
+                        nioConnector.setLowResourcesMaxIdleTime(lowResourcesMaxIdleTime > 0 ? lowResourcesMaxIdleTime : maxIdleTime);
+                    }
+                }
+            }
+        }
+        System.out.println("Jetty tuned: " + threadPool + " pool of " + minThreads + "-" + maxThreads + " threads, " + acceptors //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                + " acceptor(s), accept queue " + acceptQueueSize + ", idle timeout " + maxIdleTime + "ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+
+    /**
+     * @return the configured thread pool
+     */
+    private ThreadPool createThreadPool() {
+        if (THREAD_POOL_EXECUTOR.equals(threadPool)) {
+            final AtomicInteger threadCount = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(minThreads, maxThreads, 60, TimeUnit.SECONDS,
+                    new SynchronousQueue<Runnable>(), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            return new Thread(r, "dtgov-devsvr-" + threadCount.incrementAndGet()); //$NON-NLS-1$
+                        }
+                    });
+            return new ExecutorThreadPool(executor);
+        } else if (THREAD_POOL_QUEUED.equals(threadPool)) {
+            QueuedThreadPool pool = new QueuedThreadPool();
+            pool.setName("dtgov-devsvr"); //$NON-NLS-1$
+            pool.setMinThreads(minThreads);
+            pool.setMaxThreads(maxThreads);
+            pool.setMaxQueued(maxQueued);
+            return pool;
+        } else {
+            throw new IllegalArgumentException("Unknown thread pool: " + threadPool); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * @see org.eclipse.jetty.server.Handler#handle(java.lang.String, org.eclipse.jetty.server.Request, javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)
+     */
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+        // Never handles anything
+    }
+
+    /**
+     * @param threadPool the type of thread pool ({@link #THREAD_POOL_QUEUED} or {@link #THREAD_POOL_EXECUTOR})
+     */
+    public void setThreadPool(String threadPool) {
+        this.threadPool = threadPool;
+    }
+
+    /**
+     * @param maxQueued the maximum number of queued jobs (-1 for no limit, queued pool only)
+     */
+    public void setMaxQueued(int maxQueued) {
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * @param minThreads the minThreads to set
+     */
+    public void setMinThreads(int minThreads) {
+        this.minThreads = minThreads;
+    }
+
+    /**
+     * @param maxThreads the maxThreads to set
+     */
+    public void setMaxThreads(int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * @param acceptors the acceptors to set
+     */
+    public void setAcceptors(int acceptors) {
+        this.acceptors = acceptors;
+    }
+
+    /**
+     * @param acceptQueueSize the acceptQueueSize to set
+     */
+    public void setAcceptQueueSize(int acceptQueueSize) {
+        this.acceptQueueSize = acceptQueueSize;
+    }
+
+    /**
+     * @param maxIdleTime the maxIdleTime to set (millis)
+     */
+    public void setMaxIdleTime(int maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    /**
+     * @param lowResourcesConnections the number of connections above which idle connections are dropped sooner (-1 for never)
+     */
+    public void setLowResourcesConnections(int lowResourcesConnections) {
+        this.lowResourcesConnections = lowResourcesConnections;
+    }
+
+    /**
+     * @param lowResourcesMaxIdleTime the idle timeout (millis) once there are more than the low resources connections
+     */
+    public void setLowResourcesMaxIdleTime(int lowResourcesMaxIdleTime) {
+        this.lowResourcesMaxIdleTime = lowResourcesMaxIdleTime;
+    }
+
+}
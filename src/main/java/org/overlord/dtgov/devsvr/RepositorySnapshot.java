@@ -0,0 +1,167 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import javax.jcr.Session;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.modeshape.jcr.api.Problems;
+import org.modeshape.jcr.api.RepositoryManager;
+import org.modeshape.jcr.api.Workspace;
+import org.overlord.sramp.repository.jcr.JCRRepositoryFactory;
+
+/**
+ * A snapshot of the seeded S-RAMP repository, kept on disk (as a ModeShape
+ * backup) so that the dev server can restore it on the next start instead
+ * of seeding the repository all over again.
+ *
+ * The snapshot is tagged with a checksum of the seed resources and the seed
+ * configuration - if either changes, the snapshot is considered out of date
+ * and the repository is seeded (and snapshotted) normally.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class RepositorySnapshot {
+
+    private static final String CHECKSUM_FILE = "seed.checksum"; //$NON-NLS-1$
+    private static final String BACKUP_DIR = "backup"; //$NON-NLS-1$
+    private static final String ENCODING = "UTF-8"; //$NON-NLS-1$
+
+    private final File directory;
+    private final String checksum;
+
+    /**
+     * Constructor.
+     * @param directory where the snapshot lives
+     * @param seedConfiguration a description of anything (other than the seed resources) that affects the seeded content
+     * @param seedResources the names of the seed resources (relative to {@link DTGovDevServer})
+     * @throws IOException
+     */
+    public RepositorySnapshot(File directory, String seedConfiguration, String ... seedResources) throws IOException {
+        this.directory = directory;
+        this.checksum = checksum(seedConfiguration, seedResources);
+    }
+
+    /**
+     * @return true if there is a snapshot taken from the current seed resources and configuration
+     */
+    public boolean isCurrent() {
+        File checksumFile = new File(directory, CHECKSUM_FILE);
+        if (!checksumFile.isFile() || !new File(directory, BACKUP_DIR).isDirectory()) {
+            return false;
+        }
+        try {
+            return checksum.equals(FileUtils.readFileToString(checksumFile, ENCODING).trim());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Restores the repository from the snapshot.
+     * @throws Exception
+     */
+    public void restore() throws Exception {
+        Session session = JCRRepositoryFactory.getSession();
+        try {
+            Problems problems = getRepositoryManager(session).restoreRepository(new File(directory, BACKUP_DIR));
+            if (problems.hasErrors()) {
+                throw new Exception("Failed to restore the repository snapshot: " + problems); //$NON-NLS-1$
+            }
+        } finally {
+            JCRRepositoryFactory.logoutQuietly(session);
+        }
+    }
+
+    /**
+     * Replaces the snapshot with the current content of the repository.  The
+     * checksum is written last, so a partially written snapshot is never used.
+     * @throws Exception
+     */
+    public void save() throws Exception {
+        FileUtils.deleteDirectory(directory);
+        FileUtils.forceMkdir(directory);
+        Session session = JCRRepositoryFactory.getSession();
+        try {
+            Problems problems = getRepositoryManager(session).backupRepository(new File(directory, BACKUP_DIR));
+            if (problems.hasErrors()) {
+                throw new Exception("Failed to snapshot the repository: " + problems); //$NON-NLS-1$
+            }
+        } finally {
+            JCRRepositoryFactory.logoutQuietly(session);
+        }
+        FileUtils.writeStringToFile(new File(directory, CHECKSUM_FILE), checksum, ENCODING);
+    }
+
+    /**
+     * @return the snapshot directory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @param session
+     */
+    private static RepositoryManager getRepositoryManager(Session session) throws Exception {
+        return ((Workspace) session.getWorkspace()).getRepositoryManager();
+    }
+
+    /**
+     * Computes a checksum over the seed configuration and resources.
+     * @param seedConfiguration
+     * @param seedResources
+     * @throws IOException
+     */
+    private static String checksum(String seedConfiguration, String ... seedResources) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        digest.update(seedConfiguration.getBytes(ENCODING));
+        byte[] buffer = new byte[8192];
+        for (String resource : seedResources) {
+            digest.update(resource.getBytes(ENCODING));
+            InputStream is = DTGovDevServer.class.getResourceAsStream(resource);
+            if (is == null) {
+                throw new IOException("Seed resource not found: " + resource); //$NON-NLS-1$
+            }
+            try {
+                int read;
+                while ((read = is.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            } finally {
+                IOUtils.closeQuietly(is);
+            }
+        }
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest.digest()) {
+            builder.append(String.format("%02x", b & 0xff)); //$NON-NLS-1$
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the dev server's seeding steps on a bounded thread pool, honouring
+ * the dependencies between them, and reports how long each step took.
+ *
+ * Steps are submitted in the order they were added, and a step can only
+ * depend on steps added before it.  Because the pool takes work in
+ * submission order, a step's dependencies are always running or done by the
+ * time it gets a thread, so waiting on them can never starve the pool.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class SeedingPlan {
+
+    private final int threads;
+    private final List<Step> steps = new ArrayList<Step>();
+
+    /**
+     * Constructor.
+     * @param threads
+     */
+    public SeedingPlan(int threads) {
+        this.threads = Math.max(threads, 1);
+    }
+
+    /**
+     * Adds a step to the plan.
+     * @param name
+     * @param seeder
+     * @param dependsOn steps that must complete before this one starts
+     */
+    public Step add(String name, Callable<?> seeder, Step ... dependsOn) {
+        for (Step dependency : dependsOn) {
+            if (!steps.contains(dependency)) {
+                throw new IllegalArgumentException("Unknown dependency: " + dependency.name); //$NON-NLS-1$
+            }
+        }
+        Step step = new Step(name, seeder, dependsOn);
+        steps.add(step);
+        return step;
+    }
+
+    /**
+     * Runs all steps and waits for them to finish.  If any step fails, the
+     * steps that depend on it are skipped and the first failure is thrown
+     * once everything else has completed.
+     */
+    public void execute() throws Exception {
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(steps.size(), 1)));
+        try {
+            for (Step step : steps) {
+                step.future = executor.submit(step);
+            }
+            Exception failure = null;
+            for (Step step : steps) {
+                try {
+                    step.future.get();
+                } catch (ExecutionException e) {
+                    if (failure == null && e.getCause() instanceof Exception) {
+                        failure = (Exception) e.getCause();
+                    } else if (failure == null) {
+                        throw e;
+                    }
+                }
+            }
+            printTimings(System.currentTimeMillis() - start);
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Prints the per-step timings.
+     * @param totalMillis
+     */
+    private void printTimings(long totalMillis) {
+        System.out.println("Seeding timings:"); //$NON-NLS-1$
+        for (Step step : steps) {
+            String status = step.skipped ? "skipped" : (step.failed ? "FAILED" : (step.endMillis - step.startMillis) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            System.out.println(String.format("  %-30s %s", step.name, status)); //$NON-NLS-1$
+        }
+        System.out.println(String.format("  %-30s %dms (%d threads)", "total", totalMillis, threads)); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * A single step in the plan.
+     */
+    public static class Step implements Callable<Object> {
+
+        private final String name;
+        private final Callable<?> seeder;
+        private final Step[] dependsOn;
+        private Future<Object> future;
+        private volatile boolean failed;
+        private volatile boolean skipped;
+        private volatile long startMillis;
+        private volatile long endMillis;
+
+        /**
+         * Constructor.
+         * @param name
+         * @param seeder
+         * @param dependsOn
+         */
+        private Step(String name, Callable<?> seeder, Step[] dependsOn) {
+            this.name = name;
+            this.seeder = seeder;
+            this.dependsOn = dependsOn;
+        }
+
+        /**
+         * @see java.util.concurrent.Callable#call()
+         */
+        @Override
+        public Object call() throws Exception {
+            for (Step dependency : dependsOn) {
+                try {
+                    dependency.future.get();
+                } catch (ExecutionException e) {
+                    skipped = true;
+                    throw new Exception("Skipped '" + name + "' because '" + dependency.name + "' failed.", e.getCause()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                }
+            }
+            startMillis = System.currentTimeMillis();
+            try {
+                return seeder.call();
+            } catch (Exception e) {
+                failed = true;
+                throw e;
+            } finally {
+                endMillis = System.currentTimeMillis();
+            }
+        }
+    }
+
+}
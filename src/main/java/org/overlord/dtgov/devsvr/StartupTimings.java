@@ -0,0 +1,96 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects how long each phase of the dev server's startup takes, and
+ * prints them as a report once the server is up.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class StartupTimings {
+
+    private final long created = System.currentTimeMillis();
+    private final List<Phase> phases = new ArrayList<Phase>();
+
+    /**
+     * Constructor.
+     */
+    public StartupTimings() {
+    }
+
+    /**
+     * Marks the start of a phase.
+     * @param name
+     */
+    public synchronized void begin(String name) {
+        phases.add(new Phase(name, System.currentTimeMillis()));
+    }
+
+    /**
+     * Marks the end of a phase.
+     * @param name
+     */
+    public synchronized void end(String name) {
+        for (int i = phases.size() - 1; i >= 0; i--) {
+            Phase phase = phases.get(i);
+            if (phase.name.equals(name) && phase.end == 0) {
+                phase.end = System.currentTimeMillis();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Prints the report: every (finished) phase in the order it started,
+     * with its share of the total startup time so far.
+     */
+    public synchronized void print() {
+        long total = Math.max(1, System.currentTimeMillis() - created);
+        System.out.println("----------  Startup timings  ----------"); //$NON-NLS-1$
+        for (Phase phase : phases) {
+            if (phase.end != 0) {
+                long millis = phase.end - phase.start;
+                System.out.println(String.format("  %-24s %8dms  %5.1f%%", phase.name, millis, millis * 100.0 / total)); //$NON-NLS-1$
+            }
+        }
+        System.out.println(String.format("  %-24s %8dms", "total", total)); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * A timed phase.
+     */
+    private static class Phase {
+
+        private final String name;
+        private final long start;
+        private long end;
+
+        /**
+         * Constructor.
+         * @param name
+         * @param start
+         */
+        public Phase(String name, long start) {
+            this.name = name;
+            this.start = start;
+        }
+    }
+
+}
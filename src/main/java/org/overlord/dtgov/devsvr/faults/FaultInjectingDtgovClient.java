@@ -0,0 +1,72 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.faults;
+
+import java.util.List;
+import java.util.Locale;
+
+import org.overlord.dtgov.common.model.Deployer;
+import org.overlord.dtgov.ui.server.services.dtgov.IDtgovClient;
+
+/**
+ * A dtgov client that injects faults (see {@link FaultInjector}, client name
+ * <code>dtgov</code>) in front of another dtgov client, which is named by
+ * the {@link #DELEGATE_PROPERTY} system property.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class FaultInjectingDtgovClient implements IDtgovClient {
+
+    public static final String DELEGATE_PROPERTY = FaultInjector.PROPERTY_PREFIX + "dtgov.delegate"; //$NON-NLS-1$
+
+    private static final FaultInjector faults = new FaultInjector("dtgov"); //$NON-NLS-1$
+
+    private final IDtgovClient delegate;
+
+    /**
+     * Constructor.
+     */
+    public FaultInjectingDtgovClient() {
+        delegate = FaultInjector.createDelegate(DELEGATE_PROPERTY, IDtgovClient.class);
+    }
+
+    /**
+     * @see org.overlord.dtgov.ui.server.services.dtgov.IDtgovClient#stopProcess(java.lang.String, long)
+     */
+    @Override
+    public void stopProcess(String targetUUID, long processId) throws Exception {
+        faults.before("stopProcess"); //$NON-NLS-1$
+        delegate.stopProcess(targetUUID, processId);
+    }
+
+    /**
+     * @see org.overlord.dtgov.ui.server.services.dtgov.IDtgovClient#getCustomDeployerNames()
+     */
+    @Override
+    public List<Deployer> getCustomDeployerNames() throws Exception {
+        faults.before("getCustomDeployerNames"); //$NON-NLS-1$
+        return delegate.getCustomDeployerNames();
+    }
+
+    /**
+     * @see org.overlord.dtgov.ui.server.services.dtgov.IDtgovClient#setLocale(java.util.Locale)
+     */
+    @Override
+    public void setLocale(Locale locale) {
+        delegate.setLocale(locale);
+    }
+
+}
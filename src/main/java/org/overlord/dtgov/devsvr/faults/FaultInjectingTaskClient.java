@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.faults;
+
+import java.util.Locale;
+
+import org.overlord.dtgov.ui.client.shared.beans.TaskActionEnum;
+import org.overlord.dtgov.ui.client.shared.beans.TaskBean;
+import org.overlord.dtgov.ui.client.shared.beans.TaskInboxFilterBean;
+import org.overlord.dtgov.ui.client.shared.beans.TaskInboxResultSetBean;
+import org.overlord.dtgov.ui.server.services.tasks.ITaskClient;
+
+/**
+ * A task client that injects faults (see {@link FaultInjector}, client name
+ * <code>task</code>) in front of another task client, which is named by the
+ * {@link #DELEGATE_PROPERTY} system property.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class FaultInjectingTaskClient implements ITaskClient {
+
+    public static final String DELEGATE_PROPERTY = FaultInjector.PROPERTY_PREFIX + "task.delegate"; //$NON-NLS-1$
+
+    private static final FaultInjector faults = new FaultInjector("task"); //$NON-NLS-1$
+
+    private final ITaskClient delegate;
+
+    /**
+     * Constructor.
+     */
+    public FaultInjectingTaskClient() {
+        delegate = FaultInjector.createDelegate(DELEGATE_PROPERTY, ITaskClient.class);
+    }
+
+    /**
+     * @see org.overlord.dtgov.ui.server.services.tasks.ITaskClient#getTasks(org.overlord.dtgov.ui.client.shared.beans.TaskInboxFilterBean, int, int, java.lang.String, boolean)
+     */
+    @Override
+    public TaskInboxResultSetBean getTasks(TaskInboxFilterBean filters, int startIndex, int endIndex,
+            String sortColumnId, boolean sortAscending) throws Exception {
+        faults.before("getTasks"); //$NON-NLS-1$
+        return delegate.getTasks(filters, startIndex, endIndex, sortColumnId, sortAscending);
+    }
+
+    /**
+     * @see org.overlord.dtgov.ui.server.services.tasks.ITaskClient#getTask(java.lang.String)
+     */
+    @Override
+    public TaskBean getTask(String taskId) {
+        faults.before("getTask"); //$NON-NLS-1$
+        try {
+            return delegate.getTask(taskId);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @see org.overlord.dtgov.ui.server.services.tasks.ITaskClient#updateTask(org.overlord.dtgov.ui.client.shared.beans.TaskBean)
+     */
+    @Override
+    public void updateTask(TaskBean task) {
+        faults.before("updateTask"); //$NON-NLS-1$
+        try {
+            delegate.updateTask(task);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @see org.overlord.dtgov.ui.server.services.tasks.ITaskClient#executeAction(org.overlord.dtgov.ui.client.shared.beans.TaskBean, org.overlord.dtgov.ui.client.shared.beans.TaskActionEnum)
+     */
+    @Override
+    public TaskBean executeAction(TaskBean task, TaskActionEnum action) throws Exception {
+        faults.before("executeAction"); //$NON-NLS-1$
+        return delegate.executeAction(task, action);
+    }
+
+    /**
+     * @see org.overlord.dtgov.ui.server.services.tasks.ITaskClient#setLocale(java.util.Locale)
+     */
+    @Override
+    public void setLocale(Locale locale) {
+        delegate.setLocale(locale);
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.faults;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Injects latency, errors and timeouts into the calls made to a (mock)
+ * back-end client.  The faults are configured per method with system
+ * properties of the form <code>dtgov-devsvr.faults.CLIENT.METHOD.SETTING</code>,
+ * where METHOD can be <code>*</code> for all methods of a client:
+ * <ul>
+ *   <li><code>latency</code> - a {@link LatencyDistribution}</li>
+ *   <li><code>error-rate</code> - the fraction of calls (0-1) that fail</li>
+ *   <li><code>timeout</code> - calls whose latency exceeds this many
+ *       milliseconds fail with a timeout after waiting this long</li>
+ *   <li><code>timeout-rate</code> - the fraction of calls (0-1) that hang
+ *       until the timeout (default 30000ms) and then fail</li>
+ * </ul>
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class FaultInjector {
+
+    public static final String PROPERTY_PREFIX = "dtgov-devsvr.faults."; //$NON-NLS-1$
+    private static final long DEFAULT_TIMEOUT = 30000;
+
+    private final String client;
+    private final ConcurrentMap<String, MethodFaults> methods = new ConcurrentHashMap<String, MethodFaults>();
+    private final ThreadLocal<Random> random = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    /**
+     * Constructor.
+     * @param client the client name used in the property names
+     */
+    public FaultInjector(String client) {
+        this.client = client;
+    }
+
+    /**
+     * Applies the configured faults to a call: waits for the injected
+     * latency and then throws if the call should fail.
+     * @param method
+     * @throws InjectedFaultException
+     */
+    public void before(String method) throws InjectedFaultException {
+        MethodFaults faults = methods.get(method);
+        if (faults == null) {
+            faults = new MethodFaults(method);
+            methods.putIfAbsent(method, faults);
+        }
+        Random r = random.get();
+        long latency = faults.latency == null ? 0 : faults.latency.sample(r);
+        boolean timedOut = faults.timeoutRate > 0 && r.nextDouble() < faults.timeoutRate;
+        if (timedOut || (faults.timeout > 0 && latency > faults.timeout)) {
+            sleep(faults.timeout);
+            throw new InjectedFaultException("Injected timeout: " + client + "." + method + " did not answer within " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                    + faults.timeout + "ms"); //$NON-NLS-1$
+        }
+        sleep(latency);
+        if (faults.errorRate > 0 && r.nextDouble() < faults.errorRate) {
+            throw new InjectedFaultException("Injected failure in " + client + "." + method); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+    }
+
+    /**
+     * @param millis
+     */
+    private static void sleep(long millis) throws InjectedFaultException {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InjectedFaultException("Interrupted during injected latency"); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Looks up a setting for a method, falling back to the client-wide one.
+     * @param method
+     * @param setting
+     */
+    private String getSetting(String method, String setting) {
+        String value = System.getProperty(PROPERTY_PREFIX + client + "." + method + "." + setting); //$NON-NLS-1$ //$NON-NLS-2$
+        if (value == null) {
+            value = System.getProperty(PROPERTY_PREFIX + client + ".*." + setting); //$NON-NLS-1$
+        }
+        return value;
+    }
+
+    /**
+     * The faults configured for one method.
+     */
+    private class MethodFaults {
+
+        private final LatencyDistribution latency;
+        private final double errorRate;
+        private final long timeout;
+        private final double timeoutRate;
+
+        /**
+         * Constructor.
+         * @param method
+         */
+        public MethodFaults(String method) {
+            String value = getSetting(method, "latency"); //$NON-NLS-1$
+            latency = value == null ? null : LatencyDistribution.parse(value);
+            value = getSetting(method, "error-rate"); //$NON-NLS-1$
+            errorRate = value == null ? 0 : Double.parseDouble(value);
+            value = getSetting(method, "timeout-rate"); //$NON-NLS-1$
+            timeoutRate = value == null ? 0 : Double.parseDouble(value);
+            value = getSetting(method, "timeout"); //$NON-NLS-1$
+            timeout = value == null ? (timeoutRate > 0 ? DEFAULT_TIMEOUT : 0) : Long.parseLong(value);
+        }
+    }
+
+    /**
+     * Creates the delegate client named by the given system property.
+     * @param property
+     * @param type
+     */
+    static <T> T createDelegate(String property, Class<T> type) {
+        String className = System.getProperty(property);
+        if (className == null) {
+            throw new IllegalStateException("No delegate configured (" + property + ")"); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        try {
+            return type.cast(Class.forName(className).newInstance());
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to create " + className, e); //$NON-NLS-1$
+        }
+    }
+
+}
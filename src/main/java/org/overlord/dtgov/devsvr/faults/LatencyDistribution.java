@@ -0,0 +1,90 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.faults;
+
+import java.util.Random;
+
+/**
+ * A distribution of injected latencies, parsed from one of:
+ * <ul>
+ *   <li><code>fixed:MILLIS</code></li>
+ *   <li><code>normal:MEAN,STDDEV</code> (never less than 0)</li>
+ *   <li><code>longtail:MEDIAN,P99</code> - log-normal, so most calls are
+ *       close to the median but a few take much longer</li>
+ * </ul>
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public abstract class LatencyDistribution {
+
+    /** The 99th percentile of the standard normal distribution. */
+    private static final double Z_99 = 2.326;
+
+    /**
+     * Parses a latency distribution.
+     * @param spec
+     * @throws IllegalArgumentException if the spec is not valid
+     */
+    public static LatencyDistribution parse(String spec) {
+        int idx = spec.indexOf(':');
+        String type = idx == -1 ? spec.trim() : spec.substring(0, idx).trim();
+        String[] args = idx == -1 ? new String[0] : spec.substring(idx + 1).split(","); //$NON-NLS-1$
+        try {
+            if ("fixed".equals(type) && args.length == 1) { //$NON-NLS-1$
+                final long millis = Long.parseLong(args[0].trim());
+                return new LatencyDistribution() {
+                    @Override
+                    public long sample(Random random) {
+                        return millis;
+                    }
+                };
+            } else if ("normal".equals(type) && args.length == 2) { //$NON-NLS-1$
+                final double mean = Double.parseDouble(args[0].trim());
+                final double stddev = Double.parseDouble(args[1].trim());
+                return new LatencyDistribution() {
+                    @Override
+                    public long sample(Random random) {
+                        return Math.max(0, Math.round(mean + stddev * random.nextGaussian()));
+                    }
+                };
+            } else if ("longtail".equals(type) && args.length == 2) { //$NON-NLS-1$
+                double median = Double.parseDouble(args[0].trim());
+                double p99 = Double.parseDouble(args[1].trim());
+                if (median <= 0 || p99 < median) {
+                    throw new IllegalArgumentException("Long tail latency needs 0 < median <= p99: " + spec); //$NON-NLS-1$
+                }
+                final double mu = Math.log(median);
+                final double sigma = (Math.log(p99) - mu) / Z_99;
+                return new LatencyDistribution() {
+                    @Override
+                    public long sample(Random random) {
+                        return Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+                    }
+                };
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid latency: " + spec, e); //$NON-NLS-1$
+        }
+        throw new IllegalArgumentException("Invalid latency: " + spec); //$NON-NLS-1$
+    }
+
+    /**
+     * @param random
+     * @return a latency, in milliseconds
+     */
+    public abstract long sample(Random random);
+
+}
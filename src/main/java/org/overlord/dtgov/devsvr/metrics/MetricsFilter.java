@@ -0,0 +1,190 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.metrics;
+
+import java.io.IOException;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Records how long each request takes (and whether it failed) against the
+ * request's path pattern in {@link RequestMetrics}.  The pattern is derived
+ * from the path: <code>*.ext</code> for anything with an extension (static
+ * resources, <code>*.erraiBus</code>), otherwise the path itself with any
+ * id-like segments (UUIDs, numbers) replaced by <code>{id}</code>.
+ *
+ * Requests that are suspended (async bus long-polls) are recorded when they
+ * complete rather than when the filter chain returns.
+ *
+ * Init parameter: <code>context</code> - the name the metrics are recorded under.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class MetricsFilter implements Filter {
+
+    private static final int MAX_SEGMENTS = 5;
+
+    private String context;
+
+    /**
+     * Constructor.
+     */
+    public MetricsFilter() {
+    }
+
+    /**
+     * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+     */
+    @Override
+    public void init(FilterConfig config) throws ServletException {
+        context = config.getInitParameter("context"); //$NON-NLS-1$
+        if (context == null) {
+            context = config.getServletContext().getContextPath();
+        }
+    }
+
+    /**
+     * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest, javax.servlet.ServletResponse, javax.servlet.FilterChain)
+     */
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException,
+            ServletException {
+        long start = System.nanoTime();
+        PathMetrics metrics = RequestMetrics.getInstance().get(context, pattern((HttpServletRequest) request));
+        boolean failed = true;
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            failed = ((HttpServletResponse) response).getStatus() >= 500;
+            async = request.isAsyncStarted();
+        } finally {
+            if (async) {
+                // Suspended (e.g. a bus long-poll) - record it when it is done
+                request.getAsyncContext().addListener(new AsyncRecorder(metrics, start));
+            } else {
+                record(metrics, start, failed);
+            }
+        }
+    }
+
+    /**
+     * @param metrics
+     * @param start
+     * @param failed
+     */
+    private static void record(PathMetrics metrics, long start, boolean failed) {
+        metrics.record((System.nanoTime() - start) / 1000, failed);
+    }
+
+    /**
+     * Records a suspended request once it completes.
+     */
+    private static class AsyncRecorder implements AsyncListener {
+
+        private final PathMetrics metrics;
+        private final long start;
+        private volatile boolean error;
+
+        /**
+         * Constructor.
+         * @param metrics
+         * @param start
+         */
+        public AsyncRecorder(PathMetrics metrics, long start) {
+            this.metrics = metrics;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException {
+            ServletResponse response = event.getAsyncContext().getResponse();
+            record(metrics, start, error || ((HttpServletResponse) response).getStatus() >= 500);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) throws IOException {
+            error = true;
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) throws IOException {
+        }
+    }
+
+    /**
+     * @see javax.servlet.Filter#destroy()
+     */
+    @Override
+    public void destroy() {
+    }
+
+    /**
+     * @param request
+     * @return the path pattern for a request
+     */
+    static String pattern(HttpServletRequest request) {
+        String path = request.getServletPath() + (request.getPathInfo() == null ? "" : request.getPathInfo()); //$NON-NLS-1$
+        int slash = path.lastIndexOf('/');
+        int dot = path.lastIndexOf('.');
+        if (dot > slash) {
+            return "*" + path.substring(dot); //$NON-NLS-1$
+        }
+        StringBuilder pattern = new StringBuilder();
+        int segments = 0;
+        for (String segment : path.split("/")) { //$NON-NLS-1$
+            if (segment.length() == 0) {
+                continue;
+            }
+            if (++segments > MAX_SEGMENTS) {
+                pattern.append("/**"); //$NON-NLS-1$
+                break;
+            }
+            pattern.append('/').append(isId(segment) ? "{id}" : segment); //$NON-NLS-1$
+        }
+        return pattern.length() == 0 ? "/" : pattern.toString(); //$NON-NLS-1$
+    }
+
+    /**
+     * @param segment
+     * @return true if a path segment looks like an id (a number, or a UUID-ish mix of hex digits and dashes)
+     */
+    private static boolean isId(String segment) {
+        boolean digits = false;
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+            } else if (!(c == '-' || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F'))) {
+                return false;
+            }
+        }
+        return digits && (segment.length() >= 8 || segment.indexOf('-') == -1);
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.metrics;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Serves the {@link RequestMetrics} in the Prometheus text format.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class MetricsServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1870212954315040233L;
+
+    /**
+     * Constructor.
+     */
+    public MetricsServlet() {
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServlet#doGet(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        StringBuilder out = new StringBuilder();
+        RequestMetrics.getInstance().writePrometheus(out);
+        resp.setContentType("text/plain; version=0.0.4; charset=utf-8"); //$NON-NLS-1$
+        resp.setHeader("Cache-Control", "no-cache"); //$NON-NLS-1$ //$NON-NLS-2$
+        resp.getWriter().write(out.toString());
+    }
+
+}
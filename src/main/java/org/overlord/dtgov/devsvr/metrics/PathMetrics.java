@@ -0,0 +1,159 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.metrics;
+
+/**
+ * Request counts, errors and a latency histogram for one path pattern of
+ * one context.  Recording a request only touches striped counters.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class PathMetrics implements PathMetricsMBean {
+
+    /** Upper bounds of the latency buckets, in microseconds (the last bucket is unbounded). */
+    static final long[] BUCKET_BOUNDS = {
+        1000, 2500, 5000, 10000, 25000, 50000, 100000, 250000, 500000, 1000000, 2500000, 5000000, 10000000
+    };
+
+    private final String context;
+    private final String pattern;
+    private final StripedCounter count = new StripedCounter();
+    private final StripedCounter errors = new StripedCounter();
+    private final StripedCounter totalMicros = new StripedCounter();
+    private final StripedCounter[] buckets = new StripedCounter[BUCKET_BOUNDS.length + 1];
+
+    /**
+     * Constructor.
+     * @param context
+     * @param pattern
+     */
+    public PathMetrics(String context, String pattern) {
+        this.context = context;
+        this.pattern = pattern;
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new StripedCounter();
+        }
+    }
+
+    /**
+     * Records a completed request.
+     * @param micros how long it took
+     * @param failed
+     */
+    public void record(long micros, boolean failed) {
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS.length && micros > BUCKET_BOUNDS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        totalMicros.add(micros);
+        count.increment();
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * @return the context name
+     */
+    public String getContext() {
+        return context;
+    }
+
+    /**
+     * @return the path pattern
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return the (non-cumulative) number of requests in each latency bucket
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * @return the total request time in microseconds
+     */
+    public long getTotalMicros() {
+        return totalMicros.sum();
+    }
+
+    /**
+     * @see org.overlord.dtgov.devsvr.metrics.PathMetricsMBean#getCount()
+     */
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @see org.overlord.dtgov.devsvr.metrics.PathMetricsMBean#getErrors()
+     */
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * @see org.overlord.dtgov.devsvr.metrics.PathMetricsMBean#getErrorRate()
+     */
+    @Override
+    public double getErrorRate() {
+        long n = getCount();
+        return n == 0 ? 0 : (double) getErrors() / n;
+    }
+
+    /**
+     * @see org.overlord.dtgov.devsvr.metrics.PathMetricsMBean#getMeanMillis()
+     */
+    @Override
+    public double getMeanMillis() {
+        long n = getCount();
+        return n == 0 ? 0 : getTotalMicros() / 1000.0 / n;
+    }
+
+    /**
+     * @see org.overlord.dtgov.devsvr.metrics.PathMetricsMBean#getP99Millis()
+     */
+    @Override
+    public double getP99Millis() {
+        long[] counts = getBucketCounts();
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * 0.99);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return BUCKET_BOUNDS[i] / 1000.0;
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+}
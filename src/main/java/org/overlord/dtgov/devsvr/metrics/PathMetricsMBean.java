@@ -0,0 +1,50 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.metrics;
+
+/**
+ * JMX view of the request metrics for one path pattern.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public interface PathMetricsMBean {
+
+    /**
+     * @return the number of completed requests
+     */
+    public long getCount();
+
+    /**
+     * @return the number of requests that failed (5xx or an exception)
+     */
+    public long getErrors();
+
+    /**
+     * @return errors / count
+     */
+    public double getErrorRate();
+
+    /**
+     * @return the mean request time in milliseconds
+     */
+    public double getMeanMillis();
+
+    /**
+     * @return the approximate 99th percentile request time in milliseconds (a histogram bucket bound)
+     */
+    public double getP99Millis();
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The request metrics of all contexts, by path pattern.  Each pattern's
+ * metrics are also registered as an MBean
+ * (<code>org.overlord.dtgov.devsvr:type=RequestMetrics,context=...,pattern=...</code>)
+ * and the whole lot can be written out in the Prometheus text format.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class RequestMetrics {
+
+    /** Beyond this many patterns, requests are counted under {@link #OTHER}. */
+    private static final int MAX_PATTERNS = 500;
+    private static final String OTHER = "other"; //$NON-NLS-1$
+    private static final String PREFIX = "dtgov_devsvr_http_"; //$NON-NLS-1$
+
+    private static final RequestMetrics instance = new RequestMetrics();
+
+    /**
+     * @return the shared request metrics
+     */
+    public static RequestMetrics getInstance() {
+        return instance;
+    }
+
+    private final ConcurrentMap<String, PathMetrics> metrics = new ConcurrentHashMap<String, PathMetrics>();
+
+    /**
+     * Constructor.
+     */
+    private RequestMetrics() {
+    }
+
+    /**
+     * Returns the metrics for a path pattern, creating them on first use.
+     * @param context
+     * @param pattern
+     */
+    public PathMetrics get(String context, String pattern) {
+        String key = context + ' ' + pattern;
+        PathMetrics pathMetrics = metrics.get(key);
+        if (pathMetrics != null) {
+            return pathMetrics;
+        }
+        if (metrics.size() >= MAX_PATTERNS && !OTHER.equals(pattern)) {
+            return get(context, OTHER);
+        }
+        pathMetrics = new PathMetrics(context, pattern);
+        PathMetrics existing = metrics.putIfAbsent(key, pathMetrics);
+        if (existing != null) {
+            return existing;
+        }
+        register(pathMetrics);
+        return pathMetrics;
+    }
+
+    /**
+     * @return all metrics, ordered by context and pattern
+     */
+    public List<PathMetrics> getAll() {
+        List<PathMetrics> all = new ArrayList<PathMetrics>(metrics.values());
+        Collections.sort(all, new Comparator<PathMetrics>() {
+            @Override
+            public int compare(PathMetrics m1, PathMetrics m2) {
+                int c = m1.getContext().compareTo(m2.getContext());
+                return c != 0 ? c : m1.getPattern().compareTo(m2.getPattern());
+            }
+        });
+        return all;
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text exposition format.
+     * @param out
+     */
+    public void writePrometheus(StringBuilder out) {
+        List<PathMetrics> all = getAll();
+        out.append("# HELP ").append(PREFIX).append("requests_total Completed HTTP requests.\n"); //$NON-NLS-1$ //$NON-NLS-2$
+        out.append("# TYPE ").append(PREFIX).append("requests_total counter\n"); //$NON-NLS-1$ //$NON-NLS-2$
+        for (PathMetrics m : all) {
+            out.append(PREFIX).append("requests_total").append(labels(m, null)).append(' ').append(m.getCount()).append('\n'); //$NON-NLS-1$
+        }
+        out.append("# HELP ").append(PREFIX).append("request_errors_total HTTP requests that failed with a 5xx or an exception.\n"); //$NON-NLS-1$ //$NON-NLS-2$
+        out.append("# TYPE ").append(PREFIX).append("request_errors_total counter\n"); //$NON-NLS-1$ //$NON-NLS-2$
+        for (PathMetrics m : all) {
+            out.append(PREFIX).append("request_errors_total").append(labels(m, null)).append(' ').append(m.getErrors()).append('\n'); //$NON-NLS-1$
+        }
+        out.append("# HELP ").append(PREFIX).append("request_duration_seconds HTTP request latency.\n"); //$NON-NLS-1$ //$NON-NLS-2$
+        out.append("# TYPE ").append(PREFIX).append("request_duration_seconds histogram\n"); //$NON-NLS-1$ //$NON-NLS-2$
+        for (PathMetrics m : all) {
+            long[] counts = m.getBucketCounts();
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                String le = i < PathMetrics.BUCKET_BOUNDS.length ? String.valueOf(PathMetrics.BUCKET_BOUNDS[i] / 1000000.0) : "+Inf"; //$NON-NLS-1$
+                out.append(PREFIX).append("request_duration_seconds_bucket").append(labels(m, le)).append(' ').append(cumulative).append('\n'); //$NON-NLS-1$
+            }
+            out.append(PREFIX).append("request_duration_seconds_sum").append(labels(m, null)).append(' ').append(m.getTotalMicros() / 1000000.0).append('\n'); //$NON-NLS-1$
+            out.append(PREFIX).append("request_duration_seconds_count").append(labels(m, null)).append(' ').append(cumulative).append('\n'); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * @param m
+     * @param le the histogram bucket bound, or null
+     */
+    private static String labels(PathMetrics m, String le) {
+        StringBuilder labels = new StringBuilder();
+        labels.append("{context=\"").append(escape(m.getContext())).append("\",pattern=\"").append(escape(m.getPattern())).append('"'); //$NON-NLS-1$ //$NON-NLS-2$
+        if (le != null) {
+            labels.append(",le=\"").append(le).append('"'); //$NON-NLS-1$
+        }
+        return labels.append('}').toString();
+    }
+
+    /**
+     * Escapes a Prometheus label value.
+     * @param value
+     */
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+    }
+
+    /**
+     * Registers the MBean for a path pattern (failures are only reported).
+     * @param pathMetrics
+     */
+    private static void register(PathMetrics pathMetrics) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("org.overlord.dtgov.devsvr:type=RequestMetrics,context=" //$NON-NLS-1$
+                    + ObjectName.quote(pathMetrics.getContext()) + ",pattern=" + ObjectName.quote(pathMetrics.getPattern())); //$NON-NLS-1$
+            if (!server.isRegistered(name)) {
+                server.registerMBean(pathMetrics, name);
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to register request metrics MBean: " + e); //$NON-NLS-1$
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.mock;
+
+import org.overlord.dtgov.ui.client.shared.beans.TaskBean;
+
+/**
+ * The outcome of a bulk task action (see
+ * {@link MockTaskClient#executeActions(java.util.List, org.overlord.dtgov.ui.client.shared.beans.TaskActionEnum, java.util.Map)})
+ * for one of its tasks: either the updated task or the reason the action
+ * wasn't applied to it.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class MockTaskActionResult {
+
+    private final String taskId;
+    private final TaskBean task;
+    private final String error;
+
+    /**
+     * Constructor.
+     * @param taskId
+     * @param task the updated task, or null if the action failed
+     * @param error why the action failed, or null if it succeeded
+     */
+    public MockTaskActionResult(String taskId, TaskBean task, String error) {
+        this.taskId = taskId;
+        this.task = task;
+        this.error = error;
+    }
+
+    /**
+     * @return the task id
+     */
+    public String getTaskId() {
+        return taskId;
+    }
+
+    /**
+     * @return the updated task (null if the action failed)
+     */
+    public TaskBean getTask() {
+        return task;
+    }
+
+    /**
+     * @return why the action failed (null if it succeeded)
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return true if the action was applied to the task
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.mock;
+
+import org.overlord.dtgov.ui.client.shared.beans.TaskSummaryBean;
+
+/**
+ * A change to one task, as seen by one subscriber of the
+ * {@link MockTaskChangeNotifier}: either the task's new summary (it matches
+ * the subscriber's filters) or, if it has stopped matching them, just its id.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class MockTaskChange {
+
+    private final String taskId;
+    private final MockTaskChangeType type;
+    private final MockTaskRow row;
+
+    /**
+     * Constructor.
+     * @param taskId
+     * @param type
+     * @param row the task's new snapshot, or null if it no longer matches
+     */
+    MockTaskChange(String taskId, MockTaskChangeType type, MockTaskRow row) {
+        this.taskId = taskId;
+        this.type = type;
+        this.row = row;
+    }
+
+    /**
+     * @return the task id
+     */
+    public String getTaskId() {
+        return taskId;
+    }
+
+    /**
+     * @return the (latest) change made to the task
+     */
+    public MockTaskChangeType getType() {
+        return type;
+    }
+
+    /**
+     * @return the task's new summary (a fresh copy), or null if it was removed
+     */
+    public TaskSummaryBean getSummary() {
+        return row == null ? null : row.getSummary();
+    }
+
+    /**
+     * @return true if the task no longer matches the subscriber's filters
+     */
+    public boolean isRemoved() {
+        return row == null;
+    }
+
+}
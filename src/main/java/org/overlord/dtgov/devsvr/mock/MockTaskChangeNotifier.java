@@ -0,0 +1,243 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.mock;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.overlord.dtgov.ui.client.shared.beans.TaskBean;
+import org.overlord.dtgov.ui.client.shared.beans.TaskInboxFilterBean;
+
+/**
+ * Pushes task changes to subscribers, so that an open inbox can apply
+ * deltas rather than re-query the whole (sorted, filtered) list.
+ *
+ * Each subscriber has its own filters, and is only told about the tasks
+ * that match them - or that matched them before the change, and now don't
+ * (those are sent as removals).  Changes are coalesced: they are collected
+ * for a short delay (see {@link #setDelay(long)}) and delivered in one
+ * batch, with only the latest state of a task that changed more than once.
+ * Publishing costs next to nothing while there are no subscribers.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class MockTaskChangeNotifier {
+
+    private static final long DEFAULT_DELAY = 100;
+    private static final int MAX_PENDING = 1000;
+    private static final MockTaskChangeNotifier instance = new MockTaskChangeNotifier();
+
+    /**
+     * @return the shared task change notifier
+     */
+    public static MockTaskChangeNotifier getInstance() {
+        return instance;
+    }
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<Subscription>();
+    private final Map<String, PendingChange> pending = new LinkedHashMap<String, PendingChange>();
+    private boolean flushScheduled;
+    private volatile long delay = DEFAULT_DELAY;
+    private ScheduledExecutorService executor;
+
+    /**
+     * Constructor.
+     */
+    public MockTaskChangeNotifier() {
+    }
+
+    /**
+     * @param delay how long (millis) changes are collected before they are delivered
+     */
+    public void setDelay(long delay) {
+        this.delay = Math.max(delay, 0);
+    }
+
+    /**
+     * Subscribes to the changes of the tasks that match the given filters.
+     * The listener is called on the notifier's own thread.
+     * @param filters
+     * @param listener
+     */
+    public Subscription subscribe(TaskInboxFilterBean filters, Listener listener) {
+        Subscription subscription = new Subscription(filters, listener);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Records a change to a task.
+     * @param type
+     * @param before the task before the change (null if it is new)
+     * @param after the task after the change
+     */
+    public void publish(MockTaskChangeType type, TaskBean before, TaskBean after) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        MockTaskRow afterRow = new MockTaskRow(-1, after);
+        synchronized (pending) {
+            PendingChange change = pending.get(afterRow.getId());
+            if (change == null) {
+                pending.put(afterRow.getId(), new PendingChange(type,
+                        before == null ? null : new MockTaskRow(-1, before), afterRow));
+            } else {
+                // Coalesce - the subscribers only care about where the task started and ended up
+                change.type = type;
+                change.after = afterRow;
+            }
+            if (!flushScheduled) {
+                flushScheduled = true;
+                scheduleFlush(delay);
+            } else if (pending.size() == MAX_PENDING) {
+                // A burst - don't let it pile up until the delay is over
+                scheduleFlush(0);
+            }
+        }
+    }
+
+    /**
+     * @param delay
+     */
+    private void scheduleFlush(long delay) {
+        executor().schedule(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Delivers the pending changes to the subscribers.
+     */
+    private void flush() {
+        List<PendingChange> changes;
+        synchronized (pending) {
+            flushScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            changes = new ArrayList<PendingChange>(pending.values());
+            pending.clear();
+        }
+        for (Subscription subscription : subscriptions) {
+            List<MockTaskChange> deltas = new ArrayList<MockTaskChange>();
+            for (PendingChange change : changes) {
+                if (MockTaskStore.matchesAll(subscription.filters, change.after)) {
+                    deltas.add(new MockTaskChange(change.after.getId(), change.type, change.after));
+                } else if (change.before != null && MockTaskStore.matchesAll(subscription.filters, change.before)) {
+                    deltas.add(new MockTaskChange(change.after.getId(), change.type, null));
+                }
+            }
+            if (!deltas.isEmpty()) {
+                try {
+                    subscription.listener.tasksChanged(deltas);
+                } catch (RuntimeException e) {
+                    // A subscriber that can't take its changes any more is dropped
+                    subscription.cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the (lazily started) delivery thread
+     */
+    private synchronized ScheduledExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "task-change-notifier"); //$NON-NLS-1$
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Receives batches of task changes.
+     */
+    public static interface Listener {
+
+        /**
+         * Called with the (coalesced) changes to the tasks that match (or
+         * used to match) the subscriber's filters.
+         * @param changes
+         */
+        public void tasksChanged(List<MockTaskChange> changes);
+
+    }
+
+    /**
+     * A subscriber's filters and listener.
+     */
+    public class Subscription {
+
+        private final TaskInboxFilterBean filters;
+        private final Listener listener;
+
+        /**
+         * Constructor.
+         * @param filters
+         * @param listener
+         */
+        private Subscription(TaskInboxFilterBean filters, Listener listener) {
+            this.filters = filters;
+            this.listener = listener;
+        }
+
+        /**
+         * Stops the changes.
+         */
+        public void cancel() {
+            subscriptions.remove(this);
+        }
+    }
+
+    /**
+     * A task change waiting to be delivered.
+     */
+    private static class PendingChange {
+
+        private MockTaskChangeType type;
+        private final MockTaskRow before;
+        private MockTaskRow after;
+
+        /**
+         * Constructor.
+         * @param type
+         * @param before
+         * @param after
+         */
+        public PendingChange(MockTaskChangeType type, MockTaskRow before, MockTaskRow after) {
+            this.type = type;
+            this.before = before;
+            this.after = after;
+        }
+    }
+
+}
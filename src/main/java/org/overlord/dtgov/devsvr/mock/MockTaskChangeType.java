@@ -0,0 +1,52 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.mock;
+
+import org.overlord.dtgov.ui.client.shared.beans.TaskActionEnum;
+
+/**
+ * What happened to a task (see {@link MockTaskChangeNotifier}).
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public enum MockTaskChangeType {
+
+    claimed, released, started, stopped, completed, failed, updated;
+
+    /**
+     * @param action
+     * @return the change made by the given task action
+     */
+    public static MockTaskChangeType forAction(TaskActionEnum action) {
+        switch (action) {
+        case claim:
+            return claimed;
+        case release:
+            return released;
+        case start:
+            return started;
+        case stop:
+            return stopped;
+        case complete:
+            return completed;
+        case fail:
+            return failed;
+        default:
+            return updated;
+        }
+    }
+
+}
@@ -15,18 +15,15 @@
  */
 package org.overlord.dtgov.devsvr.mock;
 
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.TreeSet;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
 
-import org.overlord.dtgov.ui.client.shared.beans.Constants;
 import org.overlord.dtgov.ui.client.shared.beans.TaskActionEnum;
 import org.overlord.dtgov.ui.client.shared.beans.TaskBean;
 import org.overlord.dtgov.ui.client.shared.beans.TaskInboxFilterBean;
@@ -35,107 +32,17 @@ import org.overlord.dtgov.ui.client.shared.beans.TaskSummaryBean;
 import org.overlord.dtgov.ui.server.services.tasks.ITaskClient;
 
 /**
- * A mock task client that provides sample data.
+ * A mock task client that provides sample data.  Changes made through it
+ * are published to the {@link MockTaskChangeNotifier}.
  * @author eric.wittmann@redhat.com
  */
 public class MockTaskClient implements ITaskClient {
 
-    private final static String secureRandomAlgorithm = "SHA1PRNG"; //$NON-NLS-1$
-    private final static SecureRandom random;
-
-    private static List<TaskBean> tasks = new ArrayList<TaskBean>();
-    static {
-        try {
-            random = SecureRandom.getInstance(secureRandomAlgorithm);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("runtime does not support secure random algorithm: " + secureRandomAlgorithm); //$NON-NLS-1$
-        }
-        for (int i=0; i < 42; i++) {
-            TaskBean bean = new TaskBean();
-            bean.setId(String.valueOf(i));
-            bean.setName("Task " + i); //$NON-NLS-1$
-            bean.setOwner((random.nextInt(111) % 4) == 0 ? "ewittman" : null); //$NON-NLS-1$
-            bean.setPriority(random.nextInt(3));
-            bean.setStatus(MockTaskStatus.Ready.toString());
-            bean.setType("mock-task"); //$NON-NLS-1$
-            if (random.nextInt() % 2 > 0) {
-                bean.setDescription("Lorem ipsum dolor sit amet, consectetur adipiscing elit. Integer nec odio. Praesent libero. Sed cursus ante dapibus diam. Sed nisi. Nulla quis sem at nibh elementum imperdiet. Duis sagittis ipsum. Praesent mauris. Fusce nec tellus sed augue semper porta."); //$NON-NLS-1$
-            }
-            bean.addAllowedAction(TaskActionEnum.claim);
-            Calendar cal = Calendar.getInstance();
-            cal.add(Calendar.DAY_OF_YEAR, i);
-            bean.setDueDate(cal.getTime());
-            bean.setTaskForm(createTaskForm(i));
-            bean.setTaskData(createTaskData(i));
-            tasks.add(bean);
-        }
-    }
-
-    /**
-     * Creates a mock task form.
-     * @param taskId
-     */
-    private static String createTaskForm(int taskId) {
-        return  "<div>" + //$NON-NLS-1$
-                "<form>\r\n" + //$NON-NLS-1$
-                "  <fieldset>\r\n" + //$NON-NLS-1$
-                "    <label>Task Field 1</label>\r\n" + //$NON-NLS-1$
-                "    <input name=\"task-field-1\" type=\"text\" placeholder=\"Type something...\"></input>\r\n" + //$NON-NLS-1$
-                "    <label class=\"checkbox\">\r\n" + //$NON-NLS-1$
-                "      <input name=\"task-field-2\" type=\"checkbox\"> Task Field 2</input>\r\n" + //$NON-NLS-1$
-                "    </label>\r\n" + //$NON-NLS-1$
-                "    <label>Task Field 3</label>\r\n" + //$NON-NLS-1$
-                "    <input name=\"task-field-3\" type=\"text\"></input>\r\n" + //$NON-NLS-1$
-                "    <label>Task Field 4</label>\r\n" + //$NON-NLS-1$
-                "    <label class=\"radio\"><input type=\"radio\" name=\"task-field-4\" value=\"option-1\"></input></label>\r\n" + //$NON-NLS-1$
-                "    <input type=\"radio\" name=\"task-field-4\" value=\"option-2\">Option 2</input>\r\n" + //$NON-NLS-1$
-                "    <input type=\"radio\" name=\"task-field-4\" value=\"option-3\">Option 3</input>\r\n" + //$NON-NLS-1$
-                "    <span class=\"help-block\">Enter a short description below:</span>\r\n" + //$NON-NLS-1$
-                "    <textarea name=\"task-field-5\" rows=\"3\" cols=\"40\"></textarea>\r\n" + //$NON-NLS-1$
-                "    <label>Task Field 6</label>\r\n" + //$NON-NLS-1$
-                "    <select name=\"task-field-6\">\r\n" + //$NON-NLS-1$
-                "      <option value=\"option-1\">Option 1</option>\r\n" + //$NON-NLS-1$
-                "      <option value=\"option-2\">Option 2</option>\r\n" + //$NON-NLS-1$
-                "      <option value=\"option-3\">Option 3</option>\r\n" + //$NON-NLS-1$
-                "      <option value=\"option-4\">Option 4</option>\r\n" + //$NON-NLS-1$
-                "    </select>\r\n" + //$NON-NLS-1$
-                "    <label>Read-Only</label>\r\n" + //$NON-NLS-1$
-                "    <div>\r\n" + //$NON-NLS-1$
-                "      We support:\r\n" + //$NON-NLS-1$
-                "      <p>\r\n" + //$NON-NLS-1$
-                "        spans: <span data-name=\"task-label-1\"></span>\r\n" + //$NON-NLS-1$
-                "      </p>\r\n" + //$NON-NLS-1$
-                "      <p>\r\n" + //$NON-NLS-1$
-                "        divs: <div data-name=\"task-label-2\"></div>\r\n" + //$NON-NLS-1$
-                "      </p>\r\n" + //$NON-NLS-1$
-                "      <p>\r\n" + //$NON-NLS-1$
-                "        labels: <label data-name=\"task-label-3\"></label>\r\n" + //$NON-NLS-1$
-                "      </p>\r\n" + //$NON-NLS-1$
-                "    </div>\r\n" + //$NON-NLS-1$
-                "  </fieldset>\r\n" + //$NON-NLS-1$
-                "</form>\r\n" + //$NON-NLS-1$
-                "" + //$NON-NLS-1$
-                "</div>"; //$NON-NLS-1$
-    }
-
-    /**
-     * Creates mock task data.
-     * @param taskId
-     */
-    private static Map<String, String> createTaskData(int taskId) {
-        Map<String, String> data = new HashMap<String, String>();
-        data.put("TaskName", "sample-task"); //$NON-NLS-1$ //$NON-NLS-2$
-        data.put("task-field-1", "Hello World"); //$NON-NLS-1$ //$NON-NLS-2$
-        data.put("task-field-2", "true"); //$NON-NLS-1$ //$NON-NLS-2$
-        data.put("task-field-3", "Foo Bar"); //$NON-NLS-1$ //$NON-NLS-2$
-        data.put("task-field-4", "option-2"); //$NON-NLS-1$ //$NON-NLS-2$
-        data.put("task-field-5", "Creates a mock task form."); //$NON-NLS-1$ //$NON-NLS-2$
-        data.put("task-field-6", "option-3"); //$NON-NLS-1$ //$NON-NLS-2$
-        data.put("task-label-1", "Span Label"); //$NON-NLS-1$ //$NON-NLS-2$
-        data.put("task-label-2", "Div Label"); //$NON-NLS-1$ //$NON-NLS-2$
-        data.put("task-label-3", "Label Label"); //$NON-NLS-1$ //$NON-NLS-2$
-        return data;
-    }
+    private static final Set<TaskActionEnum> BULK_ACTIONS = EnumSet.of(TaskActionEnum.claim,
+            TaskActionEnum.release, TaskActionEnum.start, TaskActionEnum.stop, TaskActionEnum.complete,
+            TaskActionEnum.fail);
+    private static final MockTaskStore store = MockTaskGenerator.fromSystemProperties().generate();
+    private static final MockTaskChangeNotifier notifier = MockTaskChangeNotifier.getInstance();
 
     /**
      * Constructor.
@@ -148,81 +55,59 @@ public class MockTaskClient implements ITaskClient {
      */
     @Override
     public TaskInboxResultSetBean getTasks(TaskInboxFilterBean filters, int startIndex, int endIndex,
-            final String sortColumnId, final boolean sortAscending) throws Exception {
-        TreeSet<TaskSummaryBean> filteredTasks = new TreeSet<TaskSummaryBean>(new Comparator<TaskSummaryBean>() {
-            @Override
-            @SuppressWarnings({ "unchecked", "rawtypes" })
-            public int compare(TaskSummaryBean task1, TaskSummaryBean task2) {
-                Comparable sortValue1 = null;
-                Comparable sortValue2 = null;
-                if (sortColumnId.equals(Constants.SORT_COLID_NAME)) {
-                    sortValue1 = task1.getName();
-                    sortValue2 = task2.getName();
-                } else if (sortColumnId.equals(Constants.SORT_COLID_PRIORITY)) {
-                    sortValue1 = task1.getPriority();
-                    sortValue2 = task2.getPriority();
-                } else if (sortColumnId.equals(Constants.SORT_COLID_OWNER)) {
-                    sortValue1 = task1.getOwner();
-                    if (sortValue1 == null)
-                        sortValue1 = ""; //$NON-NLS-1$
-                    sortValue2 = task2.getOwner();
-                    if (sortValue2 == null)
-                        sortValue2 = ""; //$NON-NLS-1$
-                } else if (sortColumnId.equals(Constants.SORT_COLID_STATUS)) {
-                    sortValue1 = task1.getStatus();
-                    sortValue2 = task2.getStatus();
-                } else if (sortColumnId.equals(Constants.SORT_COLID_DUE_ON)) {
-                    sortValue1 = task1.getDueDate();
-                    sortValue2 = task2.getDueDate();
-                }
-                
-                int rval = sortValue1.compareTo(sortValue2);
-                if (!sortAscending) {
-                    rval = rval * -1;
-                }
-                if (rval == 0) {
-                    rval = task1.getId().compareTo(task2.getId());
-                }
-                return rval;
-            }
-        });
-        for (TaskSummaryBean task : tasks) {
-            if (matchesFilter(filters, task)) {
-                filteredTasks.add(task);
-            }
+            String sortColumnId, boolean sortAscending) throws Exception {
+        MockTaskSortColumn sortColumn = MockTaskSortColumn.fromColumnId(sortColumnId);
+        MockTaskStore.Page page = store.query(filters, startIndex, endIndex, sortColumn, sortAscending);
+        List<TaskSummaryBean> pageTasks = new ArrayList<TaskSummaryBean>(page.getRows().size());
+        for (MockTaskRow row : page.getRows()) {
+            // Summaries only - the full task (form, data) is only sent by getTask()
+            pageTasks.add(row.getSummary());
         }
-        
-        List<TaskSummaryBean> list = new ArrayList<TaskSummaryBean>(filteredTasks);
 
         TaskInboxResultSetBean result = new TaskInboxResultSetBean();
         result.setItemsPerPage((endIndex-startIndex)+1);
         result.setStartIndex(startIndex);
-        result.setTasks(new ArrayList<TaskSummaryBean>(list.subList(startIndex, Math.min(endIndex+1, filteredTasks.size()))));
-        result.setTotalResults(filteredTasks.size());
+        result.setTasks(pageTasks);
+        result.setTotalResults(page.getTotalResults());
         return result;
     }
 
     /**
+     * Keyset (cursor) paging version of
+     * {@link #getTasks(TaskInboxFilterBean, int, int, String, boolean)}:
+     * returns the page that follows the given cursor, along with the cursor
+     * for the page after that.  Pages are stable while tasks are being
+     * claimed or completed, and cost the same however deep they are.
      * @param filters
-     * @param task
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param pageSize
+     * @param sortColumnId
+     * @param sortAscending
+     * @throws IllegalArgumentException if the page size is less than 1, or the cursor is invalid or for a
+     *         different sort order
      */
-    private boolean matchesFilter(TaskInboxFilterBean filters, TaskSummaryBean task) {
-        if (filters.getPriority() >= 0) {
-            if (task.getPriority() != filters.getPriority()) {
-                return false;
-            }
+    public MockTaskKeysetResultSet getTasksAfter(TaskInboxFilterBean filters, String cursor, int pageSize,
+            String sortColumnId, boolean sortAscending) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Invalid page size: " + pageSize); //$NON-NLS-1$
         }
-        if (filters.getDateDueFrom() != null && task.getDueDate() != null) {
-            if (task.getDueDate().compareTo(filters.getDateDueFrom()) < 0) {
-                return false;
-            }
+        MockTaskSortColumn sortColumn = MockTaskSortColumn.fromColumnId(sortColumnId);
+        MockTaskStore.Page page = store.queryAfter(filters, cursor == null ? null : MockTaskCursor.parse(cursor),
+                pageSize, sortColumn, sortAscending);
+        List<TaskSummaryBean> pageTasks = new ArrayList<TaskSummaryBean>(page.getRows().size());
+        for (MockTaskRow row : page.getRows()) {
+            pageTasks.add(row.getSummary());
         }
-        if (filters.getDateDueTo() != null && task.getDueDate() != null) {
-            if (task.getDueDate().compareTo(filters.getDateDueTo()) > 0) {
-                return false;
-            }
+
+        MockTaskKeysetResultSet result = new MockTaskKeysetResultSet();
+        result.setItemsPerPage(pageSize);
+        result.setTasks(pageTasks);
+        result.setTotalResults(page.getTotalResults());
+        if (pageTasks.size() == pageSize) {
+            MockTaskRow last = page.getRows().get(pageSize - 1);
+            result.setNextCursor(MockTaskCursor.after(last, sortColumn, sortAscending).toString());
         }
-        return true;
+        return result;
     }
 
     /**
@@ -230,12 +115,30 @@ public class MockTaskClient implements ITaskClient {
      */
     @Override
     public TaskBean getTask(String taskId) {
-        for (TaskBean task : tasks) {
-            if (task.getId().equals(taskId)) {
-                return task;
+        TaskBean task = store.get(taskId);
+        if (task == null || task.getTaskForm() != null) {
+            return task;
+        }
+        // Generated tasks only get their form and data when first opened.  The
+        // form may have to be fetched from S-RAMP, so that's done before the
+        // task's lock (shared with other tasks) is taken.
+        String form = MockTaskFormCache.getInstance().get(task.getType()).getHtml();
+        Lock lock = store.lockFor(taskId);
+        lock.lock();
+        try {
+            task = store.get(taskId);
+            if (task.getTaskForm() == null) {
+                task = copyTask(task);
+                task.setTaskForm(form);
+                if (task.getTaskData() == null) {
+                    task.setTaskData(MockTaskGenerator.createTaskData());
+                }
+                store.update(task);
             }
+            return task;
+        } finally {
+            lock.unlock();
         }
-        return null;
     }
 
     /**
@@ -243,22 +146,127 @@ public class MockTaskClient implements ITaskClient {
      */
     @Override
     public void updateTask(TaskBean task) {
-        TaskBean ptask = getTask(task.getId());
-        if (ptask != null) {
-            ptask.setDescription(task.getDescription());
-            ptask.setPriority(task.getPriority());
+        // Opens the task (form and data) before its lock is taken - see getTask()
+        getTask(task.getId());
+        Lock lock = store.lockFor(task.getId());
+        lock.lock();
+        try {
+            TaskBean ptask = store.get(task.getId());
+            if (ptask != null) {
+                TaskBean utask = copyTask(ptask);
+                utask.setDescription(task.getDescription());
+                utask.setPriority(task.getPriority());
+                store.update(utask);
+                notifier.publish(MockTaskChangeType.updated, ptask, utask);
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
     /**
      * @see org.overlord.dtgov.ui.server.services.tasks.ITaskClient#executeAction(org.overlord.dtgov.ui.client.shared.beans.TaskBean, org.overlord.dtgov.ui.client.shared.beans.TaskActionEnum)
+     * @throws MockTaskNotFoundException if the task doesn't exist
+     * @throws MockTaskConflictException if the task has changed, or doesn't allow the action
      */
     @Override
     public TaskBean executeAction(TaskBean task, TaskActionEnum action) throws Exception {
-        TaskBean ptask = getTask(task.getId());
-        if (!task.isActionAllowed(action)) {
-            throw new Exception("Action not allowed."); //$NON-NLS-1$
+        // Opens the task (form and data) before its lock is taken - see getTask()
+        getTask(task.getId());
+        Lock lock = store.lockFor(task.getId());
+        lock.lock();
+        try {
+            TaskBean current = store.get(task.getId());
+            if (current == null) {
+                throw new MockTaskNotFoundException(task.getId());
+            }
+            // Compare-and-set: the action only applies to the state the caller last saw.
+            if (task.getStatus() != null && !task.getStatus().equals(current.getStatus())) {
+                throw new MockTaskConflictException("Task " + task.getId() + " was modified by another user."); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+            if (!task.isActionAllowed(action) || !current.isActionAllowed(action)) {
+                throw new MockTaskConflictException("Action not allowed."); //$NON-NLS-1$
+            }
+            TaskBean ptask = copyTask(current);
+            applyAction(ptask, task.getTaskData(), action);
+            store.update(ptask);
+            notifier.publish(MockTaskChangeType.forAction(action), current, ptask);
+            return ptask;
+        } finally {
+            lock.unlock();
         }
+    }
+
+    /**
+     * Applies one action to several tasks in a single call - the bulk version
+     * of {@link #executeAction(TaskBean, TaskActionEnum)}.  The request as a
+     * whole is validated up front; after that the locks of all of the tasks
+     * are taken (in a fixed order), each task is checked and changed, and
+     * the changed tasks are written back to the store in one batch.  A task
+     * that doesn't exist or doesn't allow the action is left alone and
+     * reported as failed, without affecting the others.
+     * @param taskIds
+     * @param action
+     * @param taskData the data to complete or fail the tasks with (may be null)
+     * @return one result per task id, in the same order
+     * @throws IllegalArgumentException if the action isn't supported, or the task ids are missing or repeated
+     */
+    public List<MockTaskActionResult> executeActions(List<String> taskIds, TaskActionEnum action,
+            Map<String, String> taskData) throws Exception {
+        if (action == null || !BULK_ACTIONS.contains(action)) {
+            throw new IllegalArgumentException("Action " + action + " not supported."); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        Set<String> distinct = new HashSet<String>();
+        for (String taskId : taskIds) {
+            if (taskId == null || !distinct.add(taskId)) {
+                throw new IllegalArgumentException("Missing or repeated task id: " + taskId); //$NON-NLS-1$
+            }
+        }
+
+        List<MockTaskActionResult> results = new ArrayList<MockTaskActionResult>(taskIds.size());
+        List<TaskBean> originals = new ArrayList<TaskBean>(taskIds.size());
+        List<TaskBean> updates = new ArrayList<TaskBean>(taskIds.size());
+        List<Lock> locks = store.locksFor(taskIds);
+        int locked = 0;
+        try {
+            for (Lock lock : locks) {
+                lock.lock();
+                locked++;
+            }
+            for (String taskId : taskIds) {
+                TaskBean current = store.get(taskId);
+                if (current == null) {
+                    results.add(new MockTaskActionResult(taskId, null, "Task " + taskId + " not found.")); //$NON-NLS-1$ //$NON-NLS-2$
+                } else if (!current.isActionAllowed(action)) {
+                    results.add(new MockTaskActionResult(taskId, null, "Action not allowed.")); //$NON-NLS-1$
+                } else {
+                    TaskBean ptask = copyTask(current);
+                    applyAction(ptask, taskData, action);
+                    originals.add(current);
+                    updates.add(ptask);
+                    results.add(new MockTaskActionResult(taskId, ptask, null));
+                }
+            }
+            store.updateAll(updates);
+            MockTaskChangeType type = MockTaskChangeType.forAction(action);
+            for (int i = 0; i < updates.size(); i++) {
+                notifier.publish(type, originals.get(i), updates.get(i));
+            }
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Applies the given action to a (private) copy of a task.
+     * @param ptask
+     * @param taskData
+     * @param action
+     */
+    private void applyAction(TaskBean ptask, Map<String, String> taskData, TaskActionEnum action) throws Exception {
         if (action == TaskActionEnum.claim) {
             doAction(ptask, "currentuser", MockTaskStatus.Reserved, TaskActionEnum.release, //$NON-NLS-1$
                     TaskActionEnum.start, TaskActionEnum.fail, TaskActionEnum.complete);
@@ -271,14 +279,37 @@ public class MockTaskClient implements ITaskClient {
                     TaskActionEnum.start, TaskActionEnum.fail, TaskActionEnum.complete);
         } else if (action == TaskActionEnum.complete) {
             doAction(ptask, null, MockTaskStatus.Completed);
-            ptask.setTaskData(task.getTaskData());
+            ptask.setTaskData(taskData);
         } else if (action == TaskActionEnum.fail) {
             doAction(ptask, null, MockTaskStatus.Failed);
-            ptask.setTaskData(task.getTaskData());
+            ptask.setTaskData(taskData);
         } else {
             throw new Exception("Action " + action + " not supported."); //$NON-NLS-1$ //$NON-NLS-2$
         }
-        return ptask;
+    }
+
+    /**
+     * Tasks in the store are never modified in place (other threads may be
+     * reading them), so every change is made to a copy which then replaces
+     * the stored version.
+     * @param task
+     */
+    private static TaskBean copyTask(TaskBean task) {
+        TaskBean copy = new TaskBean();
+        copy.setId(task.getId());
+        copy.setName(task.getName());
+        copy.setOwner(task.getOwner());
+        copy.setPriority(task.getPriority());
+        copy.setStatus(task.getStatus());
+        copy.setType(task.getType());
+        copy.setDescription(task.getDescription());
+        copy.setDueDate(task.getDueDate());
+        copy.setTaskForm(task.getTaskForm());
+        copy.setTaskData(task.getTaskData());
+        for (TaskActionEnum action : task.getAllowedActions()) {
+            copy.addAllowedAction(action);
+        }
+        return copy;
     }
 
     /**
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.mock;
+
+/**
+ * Thrown by the {@link MockTaskClient} when an action doesn't fit the
+ * current state of a task: the task was changed by someone else since the
+ * caller last saw it, or its status doesn't allow the action.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class MockTaskConflictException extends Exception {
+
+    private static final long serialVersionUID = -2775140436528271093L;
+
+    /**
+     * Constructor.
+     * @param message
+     */
+    public MockTaskConflictException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.mock;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Date;
+
+import org.overlord.dtgov.ui.client.shared.beans.TaskBean;
+
+/**
+ * A position in the task inbox for keyset (cursor) paging: the sort key
+ * and id of the last task on a page.  The next page starts with the first
+ * task that sorts after that (key, id) pair, so it neither skips nor
+ * repeats tasks when others are claimed or completed in between, and
+ * finding it is a binary search however deep the page is.
+ *
+ * Cursors are passed around as opaque strings (see {@link #toString()} and
+ * {@link #parse(String)}), and are only valid for the sort column and
+ * direction they were created with.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public final class MockTaskCursor {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final char[] HEX = "0123456789abcdef".toCharArray(); //$NON-NLS-1$
+
+    private final MockTaskSortColumn column;
+    private final boolean ascending;
+    private final MockTaskRow position;
+
+    /**
+     * Creates the cursor that follows the given row.
+     * @param row
+     * @param column
+     * @param ascending
+     */
+    public static MockTaskCursor after(MockTaskRow row, MockTaskSortColumn column, boolean ascending) {
+        TaskBean key = new TaskBean();
+        key.setId(row.getId());
+        switch (column) {
+        case name:
+            key.setName(row.getName());
+            break;
+        case priority:
+            key.setPriority(row.getPriority());
+            break;
+        case owner:
+            key.setOwner(row.getOwner());
+            break;
+        case status:
+            key.setStatus(row.getStatus());
+            break;
+        case dueOn:
+            key.setDueDate(row.getDueDate());
+            break;
+        }
+        return new MockTaskCursor(column, ascending, new MockTaskRow(-1, key));
+    }
+
+    /**
+     * Parses a cursor from its string form.
+     * @param cursor
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    public static MockTaskCursor parse(String cursor) {
+        if (cursor.length() % 2 != 0) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor); //$NON-NLS-1$
+        }
+        byte[] bytes = new byte[cursor.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int hi = Character.digit(cursor.charAt(i * 2), 16);
+            int lo = Character.digit(cursor.charAt(i * 2 + 1), 16);
+            if (hi < 0 || lo < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor); //$NON-NLS-1$
+            }
+            bytes[i] = (byte) ((hi << 4) | lo);
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            if (in.readByte() != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor); //$NON-NLS-1$
+            }
+            MockTaskSortColumn column = MockTaskSortColumn.fromColumnId(in.readUTF());
+            boolean ascending = in.readBoolean();
+            TaskBean key = new TaskBean();
+            key.setId(in.readUTF());
+            switch (column) {
+            case name:
+                key.setName(readString(in));
+                break;
+            case priority:
+                key.setPriority(in.readInt());
+                break;
+            case owner:
+                key.setOwner(readString(in));
+                break;
+            case status:
+                key.setStatus(readString(in));
+                break;
+            case dueOn:
+                key.setDueDate(in.readBoolean() ? new Date(in.readLong()) : null);
+                break;
+            }
+            return new MockTaskCursor(column, ascending, new MockTaskRow(-1, key));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Constructor.
+     * @param column
+     * @param ascending
+     * @param position
+     */
+    private MockTaskCursor(MockTaskSortColumn column, boolean ascending, MockTaskRow position) {
+        this.column = column;
+        this.ascending = ascending;
+        this.position = position;
+    }
+
+    /**
+     * @return the sort column the cursor is for
+     */
+    public MockTaskSortColumn getColumn() {
+        return column;
+    }
+
+    /**
+     * @return the sort direction the cursor is for
+     */
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    /**
+     * @return a row with the sort key and id of the task the cursor follows
+     */
+    MockTaskRow getPosition() {
+        return position;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(baos);
+            out.writeByte(FORMAT_VERSION);
+            out.writeUTF(column.getColumnId());
+            out.writeBoolean(ascending);
+            out.writeUTF(position.getId());
+            switch (column) {
+            case name:
+                writeString(out, position.getName());
+                break;
+            case priority:
+                out.writeInt(position.getPriority());
+                break;
+            case owner:
+                writeString(out, position.getOwner());
+                break;
+            case status:
+                writeString(out, position.getStatus());
+                break;
+            case dueOn:
+                out.writeBoolean(position.getDueDate() != null);
+                if (position.getDueDate() != null) {
+                    out.writeLong(position.getDueDate().getTime());
+                }
+                break;
+            }
+            out.flush();
+            StringBuilder builder = new StringBuilder(baos.size() * 2);
+            for (byte b : baos.toByteArray()) {
+                builder.append(HEX[(b >> 4) & 0xf]).append(HEX[b & 0xf]);
+            }
+            return builder.toString();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @param out
+     * @param value
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * @param in
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.mock;
+
+import java.util.Set;
+
+import org.overlord.dtgov.ui.client.shared.beans.TaskInboxFilterBean;
+
+/**
+ * The task inbox filters, plus the ones the dtgov UI doesn't have: owner,
+ * status, task type and free text (matched against the words of the task's
+ * name and description).  All of the given filters must match.  These are
+ * answered from the store's inverted index (see {@link MockTaskFilterIndex})
+ * rather than by scanning the inbox.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class MockTaskFilterBean extends TaskInboxFilterBean {
+
+    private static final long serialVersionUID = 4371586214493735620L;
+
+    private String owner;
+    private boolean unowned;
+    private Set<MockTaskStatus> statuses;
+    private String type;
+    private String text;
+
+    /**
+     * Constructor.
+     */
+    public MockTaskFilterBean() {
+    }
+
+    /**
+     * @return true if any of the indexed filters are set
+     */
+    boolean hasIndexedFilters() {
+        return owner != null || unowned || statuses != null || type != null || !MockTaskFilterIndex.tokenize(text).isEmpty();
+    }
+
+    /**
+     * @return the owner
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * @param owner the owner to set
+     */
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * @return true if only tasks without an owner match
+     */
+    public boolean isUnowned() {
+        return unowned;
+    }
+
+    /**
+     * @param unowned true to match only tasks without an owner
+     */
+    public void setUnowned(boolean unowned) {
+        this.unowned = unowned;
+    }
+
+    /**
+     * @return the statuses (a task matches if it has any of them), or null for any status
+     */
+    public Set<MockTaskStatus> getStatuses() {
+        return statuses;
+    }
+
+    /**
+     * @param statuses the statuses to set
+     */
+    public void setStatuses(Set<MockTaskStatus> statuses) {
+        this.statuses = statuses;
+    }
+
+    /**
+     * @return the task type
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @param type the type to set
+     */
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    /**
+     * @return the text - every word in it must start a word of the task's name or description
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @param text the text to set
+     */
+    public void setText(String text) {
+        this.text = text;
+    }
+
+}
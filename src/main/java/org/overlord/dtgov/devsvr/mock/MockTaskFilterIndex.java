@@ -0,0 +1,288 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.mock;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * An inverted index over the tasks in a {@link MockTaskStore}: for every
+ * owner, status, type, priority and word (of the name and description) it
+ * keeps a bitmap posting list of the ordinals of the tasks that have it.  A
+ * combination of filters is answered by intersecting their bitmaps, smallest
+ * first, instead of checking every task.  Tasks without an owner are
+ * posted under their own (sentinel) owner key, so that they can be found too.
+ *
+ * Not thread safe - the store only changes it under its write lock.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+final class MockTaskFilterIndex {
+
+    private static final Comparator<BitSet> BY_CARDINALITY = new Comparator<BitSet>() {
+        @Override
+        public int compare(BitSet o1, BitSet o2) {
+            int c1 = o1.cardinality();
+            int c2 = o2.cardinality();
+            return c1 < c2 ? -1 : (c1 == c2 ? 0 : 1);
+        }
+    };
+
+    // The owner key of tasks that have none - can't be mistaken for any real owner
+    private static final Object NO_OWNER = new Object();
+
+    private final Map<Object, BitSet> owners = new HashMap<Object, BitSet>();
+    private final Map<String, BitSet> statuses = new HashMap<String, BitSet>();
+    private final Map<String, BitSet> types = new HashMap<String, BitSet>();
+    private final Map<Integer, BitSet> priorities = new HashMap<Integer, BitSet>();
+    private final TreeMap<String, BitSet> words = new TreeMap<String, BitSet>();
+
+    // Generated tasks share their description, so remember the last one tokenized
+    private String lastText;
+    private Set<String> lastWords;
+
+    /**
+     * Constructor.
+     */
+    public MockTaskFilterIndex() {
+    }
+
+    /**
+     * Indexes a new task.
+     * @param row
+     */
+    public void add(MockTaskRow row) {
+        int ordinal = row.getOrdinal();
+        post(owners, ownerKey(row.getOwner()), ordinal);
+        post(statuses, row.getStatus(), ordinal);
+        post(types, row.getType(), ordinal);
+        post(priorities, row.getPriority(), ordinal);
+        for (String word : words(row)) {
+            post(words, word, ordinal);
+        }
+    }
+
+    /**
+     * Re-indexes a changed task - only the postings of the values that
+     * actually changed are touched.
+     * @param oldRow
+     * @param newRow
+     */
+    public void update(MockTaskRow oldRow, MockTaskRow newRow) {
+        int ordinal = newRow.getOrdinal();
+        if (!equal(oldRow.getOwner(), newRow.getOwner())) {
+            unpost(owners, ownerKey(oldRow.getOwner()), ordinal);
+            post(owners, ownerKey(newRow.getOwner()), ordinal);
+        }
+        if (!equal(oldRow.getStatus(), newRow.getStatus())) {
+            unpost(statuses, oldRow.getStatus(), ordinal);
+            post(statuses, newRow.getStatus(), ordinal);
+        }
+        if (!equal(oldRow.getType(), newRow.getType())) {
+            unpost(types, oldRow.getType(), ordinal);
+            post(types, newRow.getType(), ordinal);
+        }
+        if (oldRow.getPriority() != newRow.getPriority()) {
+            unpost(priorities, oldRow.getPriority(), ordinal);
+            post(priorities, newRow.getPriority(), ordinal);
+        }
+        if (!equal(oldRow.getName(), newRow.getName()) || !equal(oldRow.getDescription(), newRow.getDescription())) {
+            Set<String> oldWords = words(oldRow);
+            Set<String> newWords = words(newRow);
+            for (String word : oldWords) {
+                if (!newWords.contains(word)) {
+                    unpost(words, word, ordinal);
+                }
+            }
+            for (String word : newWords) {
+                if (!oldWords.contains(word)) {
+                    post(words, word, ordinal);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the ordinals of the tasks that match the indexed filters (owner
+     * or unowned, status, type, text and priority).  The due date filters are not
+     * indexed here - the store's due date index handles those.
+     * @param filters
+     */
+    public BitSet match(MockTaskFilterBean filters) {
+        List<BitSet> postings = new ArrayList<BitSet>();
+        if (filters.getOwner() != null) {
+            postings.add(posting(owners, filters.getOwner()));
+        }
+        if (filters.isUnowned()) {
+            postings.add(posting(owners, NO_OWNER));
+        }
+        if (filters.getStatuses() != null) {
+            List<BitSet> any = new ArrayList<BitSet>();
+            for (MockTaskStatus status : filters.getStatuses()) {
+                any.add(posting(statuses, status.toString()));
+            }
+            postings.add(union(any));
+        }
+        if (filters.getType() != null) {
+            postings.add(posting(types, filters.getType()));
+        }
+        if (filters.getPriority() >= 0) {
+            postings.add(posting(priorities, filters.getPriority()));
+        }
+        if (filters.getText() != null) {
+            for (String prefix : tokenize(filters.getText())) {
+                // Every word that starts with the prefix
+                postings.add(union(words.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()));
+            }
+        }
+        if (postings.isEmpty()) {
+            throw new IllegalArgumentException("No indexed filters."); //$NON-NLS-1$
+        }
+
+        Collections.sort(postings, BY_CARDINALITY);
+        BitSet result = (BitSet) postings.get(0).clone();
+        for (int i = 1; i < postings.size() && !result.isEmpty(); i++) {
+            result.and(postings.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * @param owner
+     * @return the key the owner is posted under
+     */
+    private static Object ownerKey(String owner) {
+        return owner == null ? NO_OWNER : owner;
+    }
+
+    /**
+     * @param row
+     * @return the words of the task's name and description
+     */
+    private Set<String> words(MockTaskRow row) {
+        Set<String> rval = new HashSet<String>(tokenize(row.getName()));
+        String description = row.getDescription();
+        if (description != null) {
+            if (description != lastText) {
+                lastWords = tokenize(description);
+                lastText = description;
+            }
+            rval.addAll(lastWords);
+        }
+        return rval;
+    }
+
+    /**
+     * Splits text into lower case words (runs of letters and digits).
+     * @param text
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> rval = new HashSet<String>();
+        if (text == null) {
+            return rval;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                rval.add(text.substring(start, i).toLowerCase(Locale.ENGLISH));
+                start = -1;
+            }
+        }
+        return rval;
+    }
+
+    /**
+     * @param postings
+     * @return the union of the given postings (the only one, if there is just one)
+     */
+    private static BitSet union(Collection<BitSet> postings) {
+        if (postings.size() == 1) {
+            return postings.iterator().next();
+        }
+        BitSet rval = new BitSet();
+        for (BitSet posting : postings) {
+            rval.or(posting);
+        }
+        return rval;
+    }
+
+    /**
+     * @param index
+     * @param key
+     * @return the posting for the key (empty if there isn't one)
+     */
+    private static <K> BitSet posting(Map<K, BitSet> index, K key) {
+        BitSet posting = index.get(key);
+        return posting == null ? new BitSet() : posting;
+    }
+
+    /**
+     * @param index
+     * @param key
+     * @param ordinal
+     */
+    private static <K> void post(Map<K, BitSet> index, K key, int ordinal) {
+        if (key == null) {
+            return;
+        }
+        BitSet posting = index.get(key);
+        if (posting == null) {
+            posting = new BitSet();
+            index.put(key, posting);
+        }
+        posting.set(ordinal);
+    }
+
+    /**
+     * @param index
+     * @param key
+     * @param ordinal
+     */
+    private static <K> void unpost(Map<K, BitSet> index, K key, int ordinal) {
+        if (key == null) {
+            return;
+        }
+        BitSet posting = index.get(key);
+        if (posting != null) {
+            posting.clear(ordinal);
+            if (posting.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    /**
+     * @param s1
+     * @param s2
+     */
+    private static boolean equal(String s1, String s2) {
+        return s1 == null ? s2 == null : s1.equals(s2);
+    }
+
+}
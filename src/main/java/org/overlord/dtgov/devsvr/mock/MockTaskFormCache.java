@@ -0,0 +1,260 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.mock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.overlord.dtgov.ui.server.DtgovUIConfig;
+import org.overlord.sramp.client.SrampAtomApiClient;
+import org.overlord.sramp.client.query.ArtifactSummary;
+import org.overlord.sramp.client.query.QueryResultSet;
+
+/**
+ * Task forms, keyed by task type.  Each form is loaded once - from S-RAMP
+ * (the task form artifact whose <code>task-type</code> property matches), or
+ * failing that from the classpath (<code>TYPE.form.html</code> next to the
+ * dev server), or else the built-in mock form - and every task of that type
+ * then shares the one instance.  Each form also has a version (a content
+ * hash, usable as an ETag) and a precompressed copy, so that it can be
+ * served without being re-sent when it hasn't changed.
+ *
+ * Only the types of actual tasks (see {@link #get(String)}) and types that
+ * have a form of their own (see {@link #find(String)}) are cached, so the
+ * cache can't be grown by asking for made-up types.  It is cleared once the
+ * repository has been seeded, so that forms loaded before then (from the
+ * classpath, or the built-in one) are replaced by the seeded ones.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class MockTaskFormCache {
+
+    private static final String ENCODING = "UTF-8"; //$NON-NLS-1$
+    private static final MockTaskFormCache instance = new MockTaskFormCache();
+
+    /**
+     * @return the shared task form cache
+     */
+    public static MockTaskFormCache getInstance() {
+        return instance;
+    }
+
+    private final ConcurrentMap<String, TaskForm> forms = new ConcurrentHashMap<String, TaskForm>();
+
+    /**
+     * Constructor.
+     */
+    public MockTaskFormCache() {
+    }
+
+    /**
+     * Returns the form for the type of an existing task, loading it on first
+     * use (the built-in mock form if the type has no form of its own).
+     * @param taskType
+     */
+    public TaskForm get(String taskType) {
+        TaskForm form = forms.get(taskType);
+        if (form == null) {
+            String html = load(taskType);
+            form = cache(taskType, html == null ? MockTaskGenerator.TASK_FORM : html);
+        }
+        return form;
+    }
+
+    /**
+     * Returns the form for a task type, loading it on first use, but only if
+     * the type is known: either some task has already needed it (see
+     * {@link #get(String)}) or it has a form in S-RAMP or on the classpath.
+     * @param taskType
+     * @return the form, or null if the type is unknown
+     */
+    public TaskForm find(String taskType) {
+        TaskForm form = forms.get(taskType);
+        if (form == null) {
+            String html = load(taskType);
+            form = html == null ? null : cache(taskType, html);
+        }
+        return form;
+    }
+
+    /**
+     * @param taskType
+     * @param html
+     * @return the cached form (which may have been cached by another thread in the meantime)
+     */
+    private TaskForm cache(String taskType, String html) {
+        TaskForm loaded = new TaskForm(taskType, html);
+        TaskForm form = forms.putIfAbsent(taskType, loaded);
+        return form == null ? loaded : form;
+    }
+
+    /**
+     * Forgets all of the cached forms, so they are loaded again on next use.
+     */
+    public void clear() {
+        forms.clear();
+    }
+
+    /**
+     * @param taskType
+     * @return the form's HTML, or null if the type has no form of its own
+     */
+    private static String load(String taskType) {
+        String html = loadFromSramp(taskType);
+        if (html == null) {
+            html = loadFromClasspath(taskType);
+        }
+        return html;
+    }
+
+    /**
+     * @param taskType
+     * @return the form from S-RAMP, or null if S-RAMP isn't configured (or up) or doesn't have one
+     */
+    private static String loadFromSramp(String taskType) {
+        String endpoint = System.getProperty(DtgovUIConfig.SRAMP_ATOM_API_ENDPOINT);
+        if (endpoint == null || taskType == null) {
+            return null;
+        }
+        try {
+            SrampAtomApiClient client = new SrampAtomApiClient(endpoint);
+            QueryResultSet results = client.query("/s-ramp/core/XmlDocument[@task-type = '" + taskType.replace("'", "''") + "']"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+            for (ArtifactSummary summary : results) {
+                InputStream content = client.getArtifactContent(summary.getType(), summary.getUuid());
+                try {
+                    return IOUtils.toString(content, ENCODING);
+                } finally {
+                    IOUtils.closeQuietly(content);
+                }
+            }
+        } catch (Exception e) {
+            // Fall back to the classpath
+            System.err.println("Failed to load the task form for " + taskType + " from S-RAMP: " + e); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        return null;
+    }
+
+    /**
+     * @param taskType
+     * @return the form from the classpath, or null if there isn't one
+     */
+    private static String loadFromClasspath(String taskType) {
+        InputStream content = MockTaskFormCache.class.getResourceAsStream("/org/overlord/dtgov/devsvr/" + taskType + ".form.html"); //$NON-NLS-1$ //$NON-NLS-2$
+        if (content == null) {
+            return null;
+        }
+        try {
+            return IOUtils.toString(content, ENCODING);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            IOUtils.closeQuietly(content);
+        }
+    }
+
+    /**
+     * A cached task form.
+     */
+    public static class TaskForm {
+
+        private final String taskType;
+        private final String html;
+        private final String version;
+        private final byte[] content;
+        private final byte[] gzipped;
+
+        /**
+         * Constructor.
+         * @param taskType
+         * @param html
+         */
+        public TaskForm(String taskType, String html) {
+            this.taskType = taskType;
+            this.html = html;
+            try {
+                this.content = html.getBytes(ENCODING);
+                this.version = sha1(content);
+                ByteArrayOutputStream baos = new ByteArrayOutputStream(content.length / 2 + 64);
+                GZIPOutputStream gzip = new GZIPOutputStream(baos);
+                gzip.write(content);
+                gzip.close();
+                this.gzipped = baos.toByteArray();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        /**
+         * @return the task type
+         */
+        public String getTaskType() {
+            return taskType;
+        }
+
+        /**
+         * @return the form's HTML
+         */
+        public String getHtml() {
+            return html;
+        }
+
+        /**
+         * @return the form's version (a hash of its content)
+         */
+        public String getVersion() {
+            return version;
+        }
+
+        /**
+         * @return the form's HTML, UTF-8 encoded
+         */
+        public byte[] getContent() {
+            return content;
+        }
+
+        /**
+         * @return the form's HTML, UTF-8 encoded and gzipped
+         */
+        public byte[] getGzipped() {
+            return gzipped;
+        }
+
+        /**
+         * @param content
+         */
+        private static String sha1(byte[] content) {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+            StringBuilder builder = new StringBuilder();
+            for (byte b : digest.digest(content)) {
+                builder.append(String.format("%02x", b & 0xff)); //$NON-NLS-1$
+            }
+            return builder.toString();
+        }
+    }
+
+}
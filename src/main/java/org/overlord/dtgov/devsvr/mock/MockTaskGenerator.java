@@ -0,0 +1,212 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.mock;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.overlord.dtgov.ui.client.shared.beans.TaskActionEnum;
+import org.overlord.dtgov.ui.client.shared.beans.TaskBean;
+
+/**
+ * Generates the sample tasks served by the {@link MockTaskClient}.
+ *
+ * The number of tasks and the random seed can be set with the
+ * {@link #TASK_COUNT_PROPERTY} and {@link #TASK_SEED_PROPERTY} system
+ * properties, so that production-sized inboxes can be reproduced locally.
+ * Generated tasks share a single description and (per type) form instance, and do not
+ * carry their form or data at all until first opened (see
+ * {@link MockTaskClient#getTask(String)}).
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class MockTaskGenerator {
+
+    public static final String TASK_COUNT_PROPERTY = "dtgov-devsvr.mock-tasks.count"; //$NON-NLS-1$
+    public static final String TASK_SEED_PROPERTY = "dtgov-devsvr.mock-tasks.seed"; //$NON-NLS-1$
+    public static final int DEFAULT_TASK_COUNT = 42;
+
+    private static final String DESCRIPTION = "Lorem ipsum dolor sit amet, consectetur adipiscing elit. Integer nec odio. Praesent libero. Sed cursus ante dapibus diam. Sed nisi. Nulla quis sem at nibh elementum imperdiet. Duis sagittis ipsum. Praesent mauris. Fusce nec tellus sed augue semper porta."; //$NON-NLS-1$
+    private static final String OWNER = "ewittman"; //$NON-NLS-1$
+    private static final String TYPE = "mock-task"; //$NON-NLS-1$
+    private static final String STATUS = MockTaskStatus.Ready.toString();
+
+    /**
+     * The built-in mock task form (used when no form is found for a task
+     * type, see {@link MockTaskFormCache}).
+     */
+    public static final String TASK_FORM = "<div>" + //$NON-NLS-1$
+            "<form>\r\n" + //$NON-NLS-1$
+            "  <fieldset>\r\n" + //$NON-NLS-1$
+            "    <label>Task Field 1</label>\r\n" + //$NON-NLS-1$
+            "    <input name=\"task-field-1\" type=\"text\" placeholder=\"Type something...\"></input>\r\n" + //$NON-NLS-1$
+            "    <label class=\"checkbox\">\r\n" + //$NON-NLS-1$
+            "      <input name=\"task-field-2\" type=\"checkbox\"> Task Field 2</input>\r\n" + //$NON-NLS-1$
+            "    </label>\r\n" + //$NON-NLS-1$
+            "    <label>Task Field 3</label>\r\n" + //$NON-NLS-1$
+            "    <input name=\"task-field-3\" type=\"text\"></input>\r\n" + //$NON-NLS-1$
+            "    <label>Task Field 4</label>\r\n" + //$NON-NLS-1$
+            "    <label class=\"radio\"><input type=\"radio\" name=\"task-field-4\" value=\"option-1\"></input></label>\r\n" + //$NON-NLS-1$
+            "    <input type=\"radio\" name=\"task-field-4\" value=\"option-2\">Option 2</input>\r\n" + //$NON-NLS-1$
+            "    <input type=\"radio\" name=\"task-field-4\" value=\"option-3\">Option 3</input>\r\n" + //$NON-NLS-1$
+            "    <span class=\"help-block\">Enter a short description below:</span>\r\n" + //$NON-NLS-1$
+            "    <textarea name=\"task-field-5\" rows=\"3\" cols=\"40\"></textarea>\r\n" + //$NON-NLS-1$
+            "    <label>Task Field 6</label>\r\n" + //$NON-NLS-1$
+            "    <select name=\"task-field-6\">\r\n" + //$NON-NLS-1$
+            "      <option value=\"option-1\">Option 1</option>\r\n" + //$NON-NLS-1$
+            "      <option value=\"option-2\">Option 2</option>\r\n" + //$NON-NLS-1$
+            "      <option value=\"option-3\">Option 3</option>\r\n" + //$NON-NLS-1$
+            "      <option value=\"option-4\">Option 4</option>\r\n" + //$NON-NLS-1$
+            "    </select>\r\n" + //$NON-NLS-1$
+            "    <label>Read-Only</label>\r\n" + //$NON-NLS-1$
+            "    <div>\r\n" + //$NON-NLS-1$
+            "      We support:\r\n" + //$NON-NLS-1$
+            "      <p>\r\n" + //$NON-NLS-1$
+            "        spans: <span data-name=\"task-label-1\"></span>\r\n" + //$NON-NLS-1$
+            "      </p>\r\n" + //$NON-NLS-1$
+            "      <p>\r\n" + //$NON-NLS-1$
+            "        divs: <div data-name=\"task-label-2\"></div>\r\n" + //$NON-NLS-1$
+            "      </p>\r\n" + //$NON-NLS-1$
+            "      <p>\r\n" + //$NON-NLS-1$
+            "        labels: <label data-name=\"task-label-3\"></label>\r\n" + //$NON-NLS-1$
+            "      </p>\r\n" + //$NON-NLS-1$
+            "    </div>\r\n" + //$NON-NLS-1$
+            "  </fieldset>\r\n" + //$NON-NLS-1$
+            "</form>\r\n" + //$NON-NLS-1$
+            "" + //$NON-NLS-1$
+            "</div>"; //$NON-NLS-1$
+
+    private static final Map<String, String> TASK_DATA;
+    static {
+        Map<String, String> data = new HashMap<String, String>();
+        data.put("TaskName", "sample-task"); //$NON-NLS-1$ //$NON-NLS-2$
+        data.put("task-field-1", "Hello World"); //$NON-NLS-1$ //$NON-NLS-2$
+        data.put("task-field-2", "true"); //$NON-NLS-1$ //$NON-NLS-2$
+        data.put("task-field-3", "Foo Bar"); //$NON-NLS-1$ //$NON-NLS-2$
+        data.put("task-field-4", "option-2"); //$NON-NLS-1$ //$NON-NLS-2$
+        data.put("task-field-5", "Creates a mock task form."); //$NON-NLS-1$ //$NON-NLS-2$
+        data.put("task-field-6", "option-3"); //$NON-NLS-1$ //$NON-NLS-2$
+        data.put("task-label-1", "Span Label"); //$NON-NLS-1$ //$NON-NLS-2$
+        data.put("task-label-2", "Div Label"); //$NON-NLS-1$ //$NON-NLS-2$
+        data.put("task-label-3", "Label Label"); //$NON-NLS-1$ //$NON-NLS-2$
+        TASK_DATA = Collections.unmodifiableMap(data);
+    }
+
+    /**
+     * Creates the mock task data for a task that is being opened.
+     */
+    public static Map<String, String> createTaskData() {
+        return new HashMap<String, String>(TASK_DATA);
+    }
+
+    private final int taskCount;
+    private final long seed;
+
+    /**
+     * Creates a generator configured from the system properties.  If no seed
+     * is configured a random one is used (and printed, so the run can be
+     * reproduced).
+     */
+    public static MockTaskGenerator fromSystemProperties() {
+        int taskCount = Integer.getInteger(TASK_COUNT_PROPERTY, DEFAULT_TASK_COUNT);
+        String seedValue = System.getProperty(TASK_SEED_PROPERTY);
+        long seed = seedValue == null ? System.nanoTime() : Long.parseLong(seedValue);
+        if (taskCount != DEFAULT_TASK_COUNT || seedValue == null) {
+            System.out.println("Generating " + taskCount + " mock tasks (" + TASK_SEED_PROPERTY + "=" + seed + ")"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        }
+        return new MockTaskGenerator(taskCount, seed);
+    }
+
+    /**
+     * Constructor.
+     * @param taskCount
+     * @param seed
+     */
+    public MockTaskGenerator(int taskCount, long seed) {
+        this.taskCount = taskCount;
+        this.seed = seed;
+    }
+
+    /**
+     * Generates the tasks into a new store.
+     */
+    public MockTaskStore generate() {
+        MockTaskStore store = new MockTaskStore(taskCount);
+        XorShiftRandom random = new XorShiftRandom(seed);
+        Calendar cal = Calendar.getInstance();
+        for (int i = 0; i < taskCount; i++) {
+            TaskBean bean = new TaskBean();
+            bean.setId(String.valueOf(i));
+            bean.setName("Task " + i); //$NON-NLS-1$
+            bean.setOwner(random.nextInt(4) == 0 ? OWNER : null);
+            bean.setPriority(random.nextInt(3));
+            bean.setStatus(STATUS);
+            bean.setType(TYPE);
+            if (random.nextInt(4) == 0) {
+                bean.setDescription(DESCRIPTION);
+            }
+            bean.addAllowedAction(TaskActionEnum.claim);
+            bean.setDueDate(cal.getTime());
+            cal.add(Calendar.DAY_OF_YEAR, 1);
+            store.add(bean);
+        }
+        return store;
+    }
+
+    /**
+     * A small, fast, seedable PRNG (xorshift64*).  Good enough for sample
+     * data, and unlike {@link java.security.SecureRandom} it is cheap and
+     * reproducible.
+     */
+    private static class XorShiftRandom {
+
+        private long state;
+
+        /**
+         * Constructor.
+         * @param seed
+         */
+        public XorShiftRandom(long seed) {
+            // Scramble the seed (splitmix64) so that small seeds are fine too.
+            long z = seed + 0x9E3779B97F4A7C15L;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            z = z ^ (z >>> 31);
+            this.state = z == 0 ? 1 : z;
+        }
+
+        /**
+         * @return the next random value
+         */
+        public long nextLong() {
+            state ^= state >>> 12;
+            state ^= state << 25;
+            state ^= state >>> 27;
+            return state * 0x2545F4914F6CDD1DL;
+        }
+
+        /**
+         * @param bound
+         * @return a random int in the range [0, bound)
+         */
+        public int nextInt(int bound) {
+            return (int) ((nextLong() >>> 33) % bound);
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.mock;
+
+import org.overlord.dtgov.ui.client.shared.beans.TaskInboxResultSetBean;
+
+/**
+ * A page of the task inbox fetched by keyset paging (see
+ * {@link MockTaskClient#getTasksAfter(org.overlord.dtgov.ui.client.shared.beans.TaskInboxFilterBean, String, int, String, boolean)}),
+ * along with the cursor for the next page.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class MockTaskKeysetResultSet extends TaskInboxResultSetBean {
+
+    private static final long serialVersionUID = -3547326591883615190L;
+
+    private String nextCursor;
+
+    /**
+     * Constructor.
+     */
+    public MockTaskKeysetResultSet() {
+    }
+
+    /**
+     * @return the cursor for the next page, or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * @param nextCursor the nextCursor to set
+     */
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+}
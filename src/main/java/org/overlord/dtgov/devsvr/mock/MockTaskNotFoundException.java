@@ -0,0 +1,35 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.mock;
+
+/**
+ * Thrown by the {@link MockTaskClient} when a task doesn't exist.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class MockTaskNotFoundException extends Exception {
+
+    private static final long serialVersionUID = 4302896420188419364L;
+
+    /**
+     * Constructor.
+     * @param taskId
+     */
+    public MockTaskNotFoundException(String taskId) {
+        super("Task " + taskId + " not found."); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+}
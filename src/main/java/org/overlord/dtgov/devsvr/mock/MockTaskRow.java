@@ -0,0 +1,151 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.mock;
+
+import java.util.Date;
+
+import org.overlord.dtgov.ui.client.shared.beans.TaskBean;
+import org.overlord.dtgov.ui.client.shared.beans.TaskSummaryBean;
+
+/**
+ * An immutable snapshot of the sortable/filterable fields of a single task,
+ * as held in the indexes of the {@link MockTaskStore}.  A new row is created
+ * whenever the underlying task changes, so an index never sees a task
+ * half-way through an update.
+ *
+ * Inbox summaries are built from the row rather than from the live task, so
+ * a page of the inbox never has to touch (or copy) the tasks themselves.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public final class MockTaskRow {
+
+    private final int ordinal;
+    private final TaskBean task;
+    private final String id;
+    private final String name;
+    private final int priority;
+    private final String owner;
+    private final String status;
+    private final Date dueDate;
+    private final String type;
+    private final String description;
+
+    /**
+     * Constructor.
+     * @param ordinal
+     * @param task
+     */
+    MockTaskRow(int ordinal, TaskBean task) {
+        this.ordinal = ordinal;
+        this.task = task;
+        this.id = task.getId();
+        this.name = task.getName();
+        this.priority = task.getPriority();
+        this.owner = task.getOwner();
+        this.status = task.getStatus();
+        this.dueDate = task.getDueDate() == null ? null : new Date(task.getDueDate().getTime());
+        this.type = task.getType();
+        this.description = task.getDescription();
+    }
+
+    /**
+     * @return the position of the task in the store (stable for the life of the task)
+     */
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    /**
+     * @return the live task this row was taken from
+     */
+    public TaskBean getTask() {
+        return task;
+    }
+
+    /**
+     * Returns the inbox summary of the task: just the fields the inbox shows,
+     * without the task's description, form or data.  Each call returns a new
+     * summary, which the caller is free to modify.
+     */
+    public TaskSummaryBean getSummary() {
+        TaskSummaryBean rval = new TaskSummaryBean();
+        rval.setId(id);
+        rval.setName(name);
+        rval.setPriority(priority);
+        rval.setOwner(owner);
+        rval.setStatus(status);
+        rval.setDueDate(dueDate == null ? null : new Date(dueDate.getTime()));
+        return rval;
+    }
+
+    /**
+     * @return the id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the priority
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * @return the owner
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * @return the status
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the due date (the row's own copy - must not be modified)
+     */
+    public Date getDueDate() {
+        return dueDate;
+    }
+
+    /**
+     * @return the type
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return the description
+     */
+    public String getDescription() {
+        return description;
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.mock;
+
+import java.util.Comparator;
+
+import org.overlord.dtgov.ui.client.shared.beans.Constants;
+
+/**
+ * The columns the task inbox can be sorted on.  Each column knows how to
+ * compare the relevant value of two task rows, so the sort column id only
+ * needs to be resolved once per query rather than once per comparison.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public enum MockTaskSortColumn {
+
+    name(Constants.SORT_COLID_NAME) {
+        @Override
+        public int compareValues(MockTaskRow row1, MockTaskRow row2) {
+            return compareNullsFirst(row1.getName(), row2.getName());
+        }
+    },
+    priority(Constants.SORT_COLID_PRIORITY) {
+        @Override
+        public int compareValues(MockTaskRow row1, MockTaskRow row2) {
+            int p1 = row1.getPriority();
+            int p2 = row2.getPriority();
+            return p1 < p2 ? -1 : (p1 == p2 ? 0 : 1);
+        }
+    },
+    owner(Constants.SORT_COLID_OWNER) {
+        @Override
+        public int compareValues(MockTaskRow row1, MockTaskRow row2) {
+            // Unowned tasks sort as if their owner were the empty string.
+            String o1 = row1.getOwner() == null ? "" : row1.getOwner(); //$NON-NLS-1$
+            String o2 = row2.getOwner() == null ? "" : row2.getOwner(); //$NON-NLS-1$
+            return o1.compareTo(o2);
+        }
+    },
+    status(Constants.SORT_COLID_STATUS) {
+        @Override
+        public int compareValues(MockTaskRow row1, MockTaskRow row2) {
+            return compareNullsFirst(row1.getStatus(), row2.getStatus());
+        }
+    },
+    dueOn(Constants.SORT_COLID_DUE_ON) {
+        @Override
+        public int compareValues(MockTaskRow row1, MockTaskRow row2) {
+            return compareNullsFirst(row1.getDueDate(), row2.getDueDate());
+        }
+    };
+
+    private final String columnId;
+    private final Comparator<MockTaskRow> ascending;
+    private final Comparator<MockTaskRow> descending;
+
+    /**
+     * Constructor.
+     * @param columnId
+     */
+    private MockTaskSortColumn(String columnId) {
+        this.columnId = columnId;
+        this.ascending = new RowComparator(this, true);
+        this.descending = new RowComparator(this, false);
+    }
+
+    /**
+     * Compares the value of this column for the two given rows.
+     * @param row1
+     * @param row2
+     */
+    public abstract int compareValues(MockTaskRow row1, MockTaskRow row2);
+
+    /**
+     * Returns the full comparator for this column.  Ties are always broken
+     * by task id (ascending), regardless of the sort direction.
+     * @param sortAscending
+     */
+    public Comparator<MockTaskRow> comparator(boolean sortAscending) {
+        return sortAscending ? ascending : descending;
+    }
+
+    /**
+     * @return the sort column id used by the UI
+     */
+    public String getColumnId() {
+        return columnId;
+    }
+
+    /**
+     * Resolves a sort column from the id sent by the UI.
+     * @param columnId
+     * @throws IllegalArgumentException if the column is not supported
+     */
+    public static MockTaskSortColumn fromColumnId(String columnId) {
+        for (MockTaskSortColumn column : values()) {
+            if (column.columnId.equals(columnId)) {
+                return column;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported sort column: " + columnId); //$NON-NLS-1$
+    }
+
+    /**
+     * Compares two values, treating null as smaller than everything else.
+     * @param value1
+     * @param value2
+     */
+    private static <T extends Comparable<T>> int compareNullsFirst(T value1, T value2) {
+        if (value1 == null) {
+            return value2 == null ? 0 : -1;
+        }
+        if (value2 == null) {
+            return 1;
+        }
+        return value1.compareTo(value2);
+    }
+
+    /**
+     * Comparator over task rows for a single column and direction.
+     */
+    private static class RowComparator implements Comparator<MockTaskRow> {
+
+        private final MockTaskSortColumn column;
+        private final boolean sortAscending;
+
+        /**
+         * Constructor.
+         * @param column
+         * @param sortAscending
+         */
+        public RowComparator(MockTaskSortColumn column, boolean sortAscending) {
+            this.column = column;
+            this.sortAscending = sortAscending;
+        }
+
+        /**
+         * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
+         */
+        @Override
+        public int compare(MockTaskRow row1, MockTaskRow row2) {
+            int rval = column.compareValues(row1, row2);
+            if (!sortAscending) {
+                rval = -rval;
+            }
+            if (rval == 0) {
+                rval = row1.getId().compareTo(row2.getId());
+            }
+            return rval;
+        }
+    }
+
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * One sort order of the tasks in a {@link MockTaskStore}: the ordinals of
+ * all of the rows, kept in order by a treap (a randomized balanced binary
+ * tree) whose nodes know the size of their subtree.  That makes inserting
+ * or removing a row, finding the row at a position and counting the rows
+ * before a value all O(log n), so the index is kept up to date as tasks
+ * change instead of being re-sorted.
+ *
+ * The index holds ordinals rather than rows, and looks the rows up in the
+ * store, so that changes to other columns never leave it pointing at an
+ * outdated row.  Not thread safe - the store guards it with its lock.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+final class MockTaskSortIndex {
+
+    private final MockTaskStore store;
+    private final Comparator<MockTaskRow> comparator;
+    private final Random random = new Random();
+    private Node root;
+
+    /**
+     * Creates an index of the given rows.
+     * @param store
+     * @param comparator the sort order (must be a total order - ties broken by id)
+     * @param rows
+     */
+    MockTaskSortIndex(MockTaskStore store, Comparator<MockTaskRow> comparator, MockTaskRow[] rows) {
+        this.store = store;
+        this.comparator = comparator;
+        MockTaskRow[] sorted = rows.clone();
+        Arrays.sort(sorted, comparator);
+        // Build the tree from the sorted rows in linear time (a Cartesian tree on the random priorities)
+        List<Node> spine = new ArrayList<Node>();
+        for (MockTaskRow row : sorted) {
+            Node node = new Node(row.getOrdinal(), random.nextInt());
+            Node last = null;
+            while (!spine.isEmpty() && spine.get(spine.size() - 1).priority < node.priority) {
+                last = spine.remove(spine.size() - 1);
+            }
+            node.left = last;
+            if (!spine.isEmpty()) {
+                spine.get(spine.size() - 1).right = node;
+            }
+            spine.add(node);
+        }
+        root = spine.isEmpty() ? null : spine.get(0);
+        computeSizes(root);
+    }
+
+    /**
+     * @return the number of rows in the index
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Adds a row.
+     * @param ordinal the row's ordinal (the row must already be in the store)
+     */
+    public void insert(int ordinal) {
+        root = insert(root, new Node(ordinal, random.nextInt()), store.row(ordinal));
+    }
+
+    /**
+     * Removes a row.  The store must still hold the version of the row that
+     * was indexed, so that it can be found.
+     * @param ordinal
+     */
+    public void remove(int ordinal) {
+        root = remove(root, store.row(ordinal));
+    }
+
+    /**
+     * @param position
+     * @return the row at the given position
+     */
+    public MockTaskRow get(int position) {
+        Node node = root;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (position < leftSize) {
+                node = node.left;
+            } else if (position == leftSize) {
+                return store.row(node.ordinal);
+            } else {
+                position -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        throw new IndexOutOfBoundsException();
+    }
+
+    /**
+     * Counts the rows that come before a boundary - that is, returns the
+     * position of the first row that isn't before it.
+     * @param boundary must hold for a leading run of the rows, and for no others
+     */
+    public int count(Boundary boundary) {
+        int count = 0;
+        Node node = root;
+        while (node != null) {
+            if (boundary.isBefore(store.row(node.ordinal))) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Iterates over the rows in order, starting at the given position.
+     * @param position
+     */
+    public Iterator<MockTaskRow> iterator(int position) {
+        return new RowIterator(position);
+    }
+
+    /**
+     * @param node
+     * @param newNode
+     * @param row the new node's row
+     */
+    private Node insert(Node node, Node newNode, MockTaskRow row) {
+        if (node == null) {
+            return newNode;
+        }
+        if (comparator.compare(row, store.row(node.ordinal)) < 0) {
+            node.left = insert(node.left, newNode, row);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, newNode, row);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        node.size = size(node.left) + size(node.right) + 1;
+        return node;
+    }
+
+    /**
+     * @param node
+     * @param row
+     */
+    private Node remove(Node node, MockTaskRow row) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = comparator.compare(row, store.row(node.ordinal));
+        if (cmp < 0) {
+            node.left = remove(node.left, row);
+        } else if (cmp > 0) {
+            node.right = remove(node.right, row);
+        } else {
+            node = merge(node.left, node.right);
+        }
+        if (node != null) {
+            node.size = size(node.left) + size(node.right) + 1;
+        }
+        return node;
+    }
+
+    /**
+     * Joins two trees, all of whose rows in the first come before all of
+     * those in the second.
+     * @param left
+     * @param right
+     */
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.size = size(left.left) + size(left.right) + 1;
+            return left;
+        } else {
+            right.left = merge(left, right.left);
+            right.size = size(right.left) + size(right.right) + 1;
+            return right;
+        }
+    }
+
+    /**
+     * @param node
+     */
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        node.size = size(node.left) + size(node.right) + 1;
+        left.right = node;
+        return left;
+    }
+
+    /**
+     * @param node
+     */
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        node.size = size(node.left) + size(node.right) + 1;
+        right.left = node;
+        return right;
+    }
+
+    /**
+     * @param node
+     */
+    private static int computeSizes(Node node) {
+        if (node == null) {
+            return 0;
+        }
+        node.size = computeSizes(node.left) + computeSizes(node.right) + 1;
+        return node.size;
+    }
+
+    /**
+     * @param node
+     */
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Separates the rows that come before some value from the rest.
+     */
+    static interface Boundary {
+
+        /**
+         * @param row
+         * @return true if the row comes before the boundary
+         */
+        public boolean isBefore(MockTaskRow row);
+
+    }
+
+    /**
+     * A tree node: a row's ordinal, its random priority (the tree is a heap
+     * on these) and the size of its subtree.
+     */
+    private static class Node {
+
+        private final int ordinal;
+        private final int priority;
+        private int size = 1;
+        private Node left;
+        private Node right;
+
+        /**
+         * Constructor.
+         * @param ordinal
+         * @param priority
+         */
+        public Node(int ordinal, int priority) {
+            this.ordinal = ordinal;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * In-order iteration from a position, with an explicit stack of the
+     * nodes still to be visited.
+     */
+    private class RowIterator implements Iterator<MockTaskRow> {
+
+        private final List<Node> stack = new ArrayList<Node>();
+
+        /**
+         * Constructor.
+         * @param position
+         */
+        public RowIterator(int position) {
+            Node node = root;
+            while (node != null) {
+                int leftSize = size(node.left);
+                if (position < leftSize) {
+                    stack.add(node);
+                    node = node.left;
+                } else if (position == leftSize) {
+                    stack.add(node);
+                    node = null;
+                } else {
+                    position -= leftSize + 1;
+                    node = node.right;
+                }
+            }
+        }
+
+        /**
+         * @see java.util.Iterator#hasNext()
+         */
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        /**
+         * @see java.util.Iterator#next()
+         */
+        @Override
+        public MockTaskRow next() {
+            if (stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node node = stack.remove(stack.size() - 1);
+            for (Node next = node.right; next != null; next = next.left) {
+                stack.add(next);
+            }
+            return store.row(node.ordinal);
+        }
+
+        /**
+         * @see java.util.Iterator#remove()
+         */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
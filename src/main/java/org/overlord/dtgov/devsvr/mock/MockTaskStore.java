@@ -0,0 +1,833 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.overlord.dtgov.ui.client.shared.beans.TaskBean;
+import org.overlord.dtgov.ui.client.shared.beans.TaskInboxFilterBean;
+
+/**
+ * In-memory task store used by the {@link MockTaskClient}.
+ *
+ * The store keeps an immutable {@link MockTaskRow} snapshot of every task and
+ * maintains a sorted index per sort column and direction (see
+ * {@link MockTaskSortIndex}).  Indexes are built lazily, the first time
+ * they are needed, and from then on kept up to date as tasks are added and
+ * changed: a change re-positions the task in the indexes of the columns
+ * whose values changed, in O(log n), so a sorted page costs
+ * O(log n + page size) however busy the inbox is.
+ *
+ * The priority and due-date indexes double as range indexes: the tasks that
+ * match a priority or due-date filter are found by binary search, so a
+ * filtered, sorted page costs O(log n + page size) when the filter is on the
+ * sort column, and O(log n + m log m) otherwise (where m is the number of
+ * tasks in the most selective range).  Only when that range is a large part
+ * of the inbox does the store fall back to walking the sort index.
+ *
+ * The owner, status, type and text filters of a {@link MockTaskFilterBean}
+ * (and the priority filter, when combined with them) are answered by the
+ * bitmap posting lists of a {@link MockTaskFilterIndex}, which is kept up to
+ * date as tasks are added and changed.
+ *
+ * Lookups by id go straight to a concurrent map and take no lock.  Changes
+ * to a single task are serialized by a striped per-task lock (see
+ * {@link #lockFor(String)}), so callers can read-check-write a task without
+ * blocking changes to unrelated tasks.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class MockTaskStore {
+
+    private static final MockTaskSortColumn[] COLUMNS = MockTaskSortColumn.values();
+    private static final int LOCK_STRIPES = 64;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock[] taskLocks = new Lock[LOCK_STRIPES];
+    private final Map<String, MockTaskRow> rowsById = new ConcurrentHashMap<String, MockTaskRow>();
+    private final MockTaskFilterIndex filterIndex = new MockTaskFilterIndex();
+    private MockTaskRow[] rows;
+    private int size;
+
+    private final MockTaskSortIndex[] ascendingIndexes = new MockTaskSortIndex[COLUMNS.length];
+    private final MockTaskSortIndex[] descendingIndexes = new MockTaskSortIndex[COLUMNS.length];
+
+    /**
+     * Constructor.
+     */
+    public MockTaskStore() {
+        this(64);
+    }
+
+    /**
+     * Constructor.
+     * @param expectedSize
+     */
+    public MockTaskStore(int expectedSize) {
+        rows = new MockTaskRow[Math.max(expectedSize, 16)];
+        for (int i = 0; i < taskLocks.length; i++) {
+            taskLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Returns the current version of a task, or null if there is no such task.
+     * @param taskId
+     */
+    public TaskBean get(String taskId) {
+        MockTaskRow row = rowsById.get(taskId);
+        return row == null ? null : row.getTask();
+    }
+
+    /**
+     * Returns the lock that guards changes to the given task.  Locks are
+     * striped, so unrelated tasks may share a lock.
+     * @param taskId
+     */
+    public Lock lockFor(String taskId) {
+        return taskLocks[stripe(taskId)];
+    }
+
+    /**
+     * Returns the (distinct) locks that guard changes to the given tasks, in
+     * a fixed global order.  Callers that need several tasks at once must
+     * take the locks in that order, so that two of them can't deadlock.
+     * @param taskIds
+     */
+    public List<Lock> locksFor(Collection<String> taskIds) {
+        boolean[] stripes = new boolean[taskLocks.length];
+        for (String taskId : taskIds) {
+            stripes[stripe(taskId)] = true;
+        }
+        List<Lock> locks = new ArrayList<Lock>();
+        for (int i = 0; i < stripes.length; i++) {
+            if (stripes[i]) {
+                locks.add(taskLocks[i]);
+            }
+        }
+        return locks;
+    }
+
+    /**
+     * @param taskId
+     */
+    private int stripe(String taskId) {
+        int hash = taskId.hashCode();
+        hash ^= (hash >>> 16);
+        return (hash & 0x7fffffff) % taskLocks.length;
+    }
+
+    /**
+     * Adds a task to the store.
+     * @param task
+     */
+    public void add(TaskBean task) {
+        lock.writeLock().lock();
+        try {
+            if (rowsById.containsKey(task.getId())) {
+                throw new IllegalArgumentException("Duplicate task id: " + task.getId()); //$NON-NLS-1$
+            }
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            MockTaskRow row = new MockTaskRow(size, task);
+            rows[size++] = row;
+            rowsById.put(row.getId(), row);
+            filterIndex.add(row);
+            for (MockTaskSortColumn column : COLUMNS) {
+                if (ascendingIndexes[column.ordinal()] != null) {
+                    ascendingIndexes[column.ordinal()].insert(row.getOrdinal());
+                }
+                if (descendingIndexes[column.ordinal()] != null) {
+                    descendingIndexes[column.ordinal()].insert(row.getOrdinal());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the stored version of a task (matched by id) and re-indexes it.
+     * Callers should hold the task's lock (see {@link #lockFor(String)}) and
+     * pass a new bean rather than modifying the one returned by
+     * {@link #get(String)}, which other threads may be reading.
+     * @param task
+     */
+    public void update(TaskBean task) {
+        lock.writeLock().lock();
+        try {
+            replace(task);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the stored versions of several tasks at once, taking the
+     * store's write lock only once (see {@link #update(TaskBean)}).
+     * Callers should hold the locks of all of the tasks (see
+     * {@link #locksFor(Collection)}).
+     * @param tasks
+     */
+    public void updateAll(Collection<TaskBean> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (TaskBean task : tasks) {
+                replace(task);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the stored version of a task and re-indexes it.  Caller must
+     * hold the write lock.
+     * @param task
+     */
+    private void replace(TaskBean task) {
+        MockTaskRow oldRow = rowsById.get(task.getId());
+        if (oldRow == null) {
+            return;
+        }
+        int ordinal = oldRow.getOrdinal();
+        MockTaskRow newRow = new MockTaskRow(ordinal, task);
+        // Take the task out of the indexes whose order it changes while they can still find it...
+        List<MockTaskSortIndex> moved = new ArrayList<MockTaskSortIndex>();
+        for (MockTaskSortColumn column : COLUMNS) {
+            if (column.compareValues(oldRow, newRow) != 0) {
+                for (MockTaskSortIndex index : new MockTaskSortIndex[] { ascendingIndexes[column.ordinal()],
+                        descendingIndexes[column.ordinal()] }) {
+                    if (index != null) {
+                        index.remove(ordinal);
+                        moved.add(index);
+                    }
+                }
+            }
+        }
+        rows[ordinal] = newRow;
+        rowsById.put(newRow.getId(), newRow);
+        filterIndex.update(oldRow, newRow);
+        // ...and put it back where it now belongs
+        for (MockTaskSortIndex index : moved) {
+            index.insert(ordinal);
+        }
+    }
+
+    /**
+     * @param ordinal
+     * @return the current row with the given ordinal (caller must hold the lock)
+     */
+    MockTaskRow row(int ordinal) {
+        return rows[ordinal];
+    }
+
+    /**
+     * @return the number of tasks in the store
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns one page of tasks matching the given filters, in the given order.
+     * @param filters
+     * @param startIndex index of the first task to return
+     * @param endIndex index of the last task to return (inclusive)
+     * @param sortColumn
+     * @param sortAscending
+     */
+    public Page query(TaskInboxFilterBean filters, int startIndex, int endIndex, MockTaskSortColumn sortColumn,
+            boolean sortAscending) {
+        boolean byPriority = filters.getPriority() >= 0;
+        boolean byDueDate = filters.getDateDueFrom() != null || filters.getDateDueTo() != null;
+
+        lock.readLock().lock();
+        try {
+            refreshIndexes(sortColumn, sortAscending, byPriority, byDueDate);
+
+            MockTaskSortIndex sorted = index(sortColumn, sortAscending);
+            BitSet indexed = indexedMatches(filters);
+            if (indexed == null) {
+                if (!byPriority && !byDueDate) {
+                    return slice(sorted, Collections.singletonList(new Range(0, sorted.size())), startIndex, endIndex);
+                }
+
+                // A single filter on the sort column: the matches are already a
+                // contiguous, correctly ordered run of the sort index.
+                if (byPriority && !byDueDate && sortColumn == MockTaskSortColumn.priority) {
+                    return slice(sorted, priorityRanges(sorted, sortAscending, filters), startIndex, endIndex);
+                }
+                if (byDueDate && !byPriority && sortColumn == MockTaskSortColumn.dueOn) {
+                    return slice(sorted, dueDateRanges(sorted, sortAscending, filters), startIndex, endIndex);
+                }
+            }
+
+            // Otherwise narrow the candidates using the most selective index.
+            List<MockTaskRow> matches = findMatches(filters, indexed, byPriority, byDueDate);
+            int total = matches.size();
+            if (isSmall(total)) {
+                Collections.sort(matches, sortColumn.comparator(sortAscending));
+                List<MockTaskRow> page = new ArrayList<MockTaskRow>();
+                for (int i = Math.max(startIndex, 0); i <= endIndex && i < total; i++) {
+                    page.add(matches.get(i));
+                }
+                return new Page(page, total);
+            }
+
+            // Most of the inbox matches - cheaper to walk the sort index in order.
+            List<MockTaskRow> page = new ArrayList<MockTaskRow>();
+            int position = 0;
+            for (Iterator<MockTaskRow> iter = sorted.iterator(0); iter.hasNext() && position <= endIndex;) {
+                MockTaskRow row = iter.next();
+                if (matches(filters, indexed, row)) {
+                    if (position >= startIndex) {
+                        page.add(row);
+                    }
+                    position++;
+                }
+            }
+            return new Page(page, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the page of tasks (matching the given filters, in the given
+     * order) that follows the cursor - keyset paging.  Unlike offset paging,
+     * the page is found by searching the sort index, so it costs the same
+     * however deep it is, and tasks that change while the inbox is being
+     * paged through don't shift the later pages.  When the filters leave
+     * only a few (m) matches that aren't a run of the sort index, every page
+     * scans all of them, in O(m log page size).
+     * @param filters
+     * @param cursor where the previous page ended, or null for the first page
+     * @param pageSize
+     * @param sortColumn
+     * @param sortAscending
+     * @throws IllegalArgumentException if the cursor is for a different sort order
+     */
+    public Page queryAfter(TaskInboxFilterBean filters, MockTaskCursor cursor, int pageSize,
+            MockTaskSortColumn sortColumn, boolean sortAscending) {
+        if (cursor != null && (cursor.getColumn() != sortColumn || cursor.isAscending() != sortAscending)) {
+            throw new IllegalArgumentException("The cursor is for a different sort order."); //$NON-NLS-1$
+        }
+        boolean byPriority = filters.getPriority() >= 0;
+        boolean byDueDate = filters.getDateDueFrom() != null || filters.getDateDueTo() != null;
+        Comparator<MockTaskRow> comparator = sortColumn.comparator(sortAscending);
+
+        lock.readLock().lock();
+        try {
+            refreshIndexes(sortColumn, sortAscending, byPriority, byDueDate);
+
+            MockTaskSortIndex sorted = index(sortColumn, sortAscending);
+            BitSet indexed = indexedMatches(filters);
+            List<Range> ranges = null;
+            if (indexed != null) {
+                // Filtered by the inverted index - no run of the sort index holds just the matches
+            } else if (!byPriority && !byDueDate) {
+                ranges = Collections.singletonList(new Range(0, sorted.size()));
+            } else if (byPriority && !byDueDate && sortColumn == MockTaskSortColumn.priority) {
+                ranges = priorityRanges(sorted, sortAscending, filters);
+            } else if (byDueDate && !byPriority && sortColumn == MockTaskSortColumn.dueOn) {
+                ranges = dueDateRanges(sorted, sortAscending, filters);
+            }
+            int from = cursor == null ? 0 : after(sorted, comparator, cursor.getPosition());
+            List<MockTaskRow> page = new ArrayList<MockTaskRow>(pageSize);
+            if (ranges != null) {
+                for (Range range : ranges) {
+                    int start = Math.max(range.from, from);
+                    Iterator<MockTaskRow> iter = sorted.iterator(start);
+                    for (int i = start; i < range.to && page.size() < pageSize; i++) {
+                        page.add(iter.next());
+                    }
+                }
+                return new Page(page, count(ranges));
+            }
+
+            List<MockTaskRow> matches = findMatches(filters, indexed, byPriority, byDueDate);
+            int total = matches.size();
+            if (isSmall(total)) {
+                // Keep the first page's worth of matches after the cursor - O(m log pageSize),
+                // rather than sorting all of the matches again for every page
+                PriorityQueue<MockTaskRow> first = new PriorityQueue<MockTaskRow>(pageSize + 1,
+                        Collections.reverseOrder(comparator));
+                for (MockTaskRow row : matches) {
+                    if (cursor == null || comparator.compare(row, cursor.getPosition()) > 0) {
+                        first.add(row);
+                        if (first.size() > pageSize) {
+                            first.poll();
+                        }
+                    }
+                }
+                page.addAll(first);
+                Collections.sort(page, comparator);
+                return new Page(page, total);
+            }
+            for (Iterator<MockTaskRow> iter = sorted.iterator(from); iter.hasNext() && page.size() < pageSize;) {
+                MockTaskRow row = iter.next();
+                if (matches(filters, indexed, row)) {
+                    page.add(row);
+                }
+            }
+            return new Page(page, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Makes sure the indexes a query needs have been built.  Caller must hold
+     * the read lock (which is briefly traded for the write lock if any index
+     * has to be built).
+     * @param sortColumn
+     * @param sortAscending
+     * @param byPriority
+     * @param byDueDate
+     */
+    private void refreshIndexes(MockTaskSortColumn sortColumn, boolean sortAscending, boolean byPriority,
+            boolean byDueDate) {
+        if (isStale(sortColumn, sortAscending) || (byPriority && isStale(MockTaskSortColumn.priority, true))
+                || (byDueDate && isStale(MockTaskSortColumn.dueOn, true))) {
+            // Build under the write lock, then downgrade to the read lock.
+            lock.readLock().unlock();
+            lock.writeLock().lock();
+            try {
+                index(sortColumn, sortAscending);
+                if (byPriority)
+                    index(MockTaskSortColumn.priority, true);
+                if (byDueDate)
+                    index(MockTaskSortColumn.dueOn, true);
+            } finally {
+                lock.readLock().lock();
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the tasks that match the indexed filters (see
+     * {@link MockTaskFilterIndex}), or null if there are none.  Caller must
+     * hold the lock.
+     * @param filters
+     */
+    private BitSet indexedMatches(TaskInboxFilterBean filters) {
+        if (filters instanceof MockTaskFilterBean && ((MockTaskFilterBean) filters).hasIndexedFilters()) {
+            return filterIndex.match((MockTaskFilterBean) filters);
+        }
+        return null;
+    }
+
+    /**
+     * Finds all tasks that match the given filters (in no particular order),
+     * using the most selective index (the inverted index matches or a range
+     * index) to narrow the candidates.  Caller must hold the lock.
+     * @param filters
+     * @param indexed the inverted index matches, or null
+     * @param byPriority
+     * @param byDueDate
+     */
+    private List<MockTaskRow> findMatches(TaskInboxFilterBean filters, BitSet indexed, boolean byPriority,
+            boolean byDueDate) {
+        MockTaskSortIndex candidateIndex = null;
+        List<Range> candidateRanges = null;
+        if (byPriority && indexed == null) {
+            candidateIndex = index(MockTaskSortColumn.priority, true);
+            candidateRanges = priorityRanges(candidateIndex, true, filters);
+        }
+        if (byDueDate) {
+            MockTaskSortIndex dueIndex = index(MockTaskSortColumn.dueOn, true);
+            List<Range> dueRanges = dueDateRanges(dueIndex, true, filters);
+            if (candidateRanges == null || count(dueRanges) < count(candidateRanges)) {
+                candidateIndex = dueIndex;
+                candidateRanges = dueRanges;
+            }
+        }
+        if (indexed != null && (candidateRanges == null || indexed.cardinality() <= count(candidateRanges))) {
+            List<MockTaskRow> matches = new ArrayList<MockTaskRow>(indexed.cardinality());
+            for (int i = indexed.nextSetBit(0); i >= 0; i = indexed.nextSetBit(i + 1)) {
+                MockTaskRow row = rows[i];
+                if (matchesFilter(filters, row)) {
+                    matches.add(row);
+                }
+            }
+            return matches;
+        }
+        List<MockTaskRow> matches = new ArrayList<MockTaskRow>(count(candidateRanges));
+        for (Range range : candidateRanges) {
+            Iterator<MockTaskRow> iter = candidateIndex.iterator(range.from);
+            for (int i = range.from; i < range.to; i++) {
+                MockTaskRow row = iter.next();
+                if (matches(filters, indexed, row)) {
+                    matches.add(row);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * @param matches
+     * @return true if sorting the matches is cheaper than walking a sort index
+     */
+    private boolean isSmall(int matches) {
+        return matches < 2 || (long) matches * log2(matches) <= size;
+    }
+
+    /**
+     * Returns the position of the first row in the (fully sorted) index that
+     * sorts strictly after the given row.
+     * @param index
+     * @param comparator
+     * @param position
+     */
+    private static int after(MockTaskSortIndex index, final Comparator<MockTaskRow> comparator,
+            final MockTaskRow position) {
+        return index.count(new MockTaskSortIndex.Boundary() {
+            @Override
+            public boolean isBefore(MockTaskRow row) {
+                return comparator.compare(row, position) <= 0;
+            }
+        });
+    }
+
+    /**
+     * Returns true if a task matches the given filters and (if there are
+     * any) the inverted index matches.
+     * @param filters
+     * @param indexed
+     * @param row
+     */
+    private static boolean matches(TaskInboxFilterBean filters, BitSet indexed, MockTaskRow row) {
+        return (indexed == null || indexed.get(row.getOrdinal())) && matchesFilter(filters, row);
+    }
+
+    /**
+     * Returns true if a task matches all of the given filters, including the
+     * indexed ones of a {@link MockTaskFilterBean} - checked directly, for a
+     * single task that may not even be in the store.
+     * @param filters
+     * @param row
+     */
+    static boolean matchesAll(TaskInboxFilterBean filters, MockTaskRow row) {
+        if (!matchesFilter(filters, row)) {
+            return false;
+        }
+        if (!(filters instanceof MockTaskFilterBean)) {
+            return true;
+        }
+        MockTaskFilterBean mfilters = (MockTaskFilterBean) filters;
+        if (mfilters.getOwner() != null && !mfilters.getOwner().equals(row.getOwner())) {
+            return false;
+        }
+        if (mfilters.isUnowned() && row.getOwner() != null) {
+            return false;
+        }
+        if (mfilters.getType() != null && !mfilters.getType().equals(row.getType())) {
+            return false;
+        }
+        if (mfilters.getStatuses() != null) {
+            boolean found = false;
+            for (MockTaskStatus status : mfilters.getStatuses()) {
+                found |= status.toString().equals(row.getStatus());
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        Set<String> prefixes = MockTaskFilterIndex.tokenize(mfilters.getText());
+        if (!prefixes.isEmpty()) {
+            Set<String> words = MockTaskFilterIndex.tokenize(row.getName());
+            words.addAll(MockTaskFilterIndex.tokenize(row.getDescription()));
+            for (String prefix : prefixes) {
+                boolean found = false;
+                for (String word : words) {
+                    found |= word.startsWith(prefix);
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if a task matches the given filters.  Tasks without a due
+     * date always pass the due date filters.
+     * @param filters
+     * @param row
+     */
+    private static boolean matchesFilter(TaskInboxFilterBean filters, MockTaskRow row) {
+        if (filters.getPriority() >= 0) {
+            if (row.getPriority() != filters.getPriority()) {
+                return false;
+            }
+        }
+        if (filters.getDateDueFrom() != null && row.getDueDate() != null) {
+            if (row.getDueDate().compareTo(filters.getDateDueFrom()) < 0) {
+                return false;
+            }
+        }
+        if (filters.getDateDueTo() != null && row.getDueDate() != null) {
+            if (row.getDueDate().compareTo(filters.getDateDueTo()) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the runs of the given priority index that match the priority filter.
+     * @param index
+     * @param ascending
+     * @param filters
+     */
+    private List<Range> priorityRanges(MockTaskSortIndex index, boolean ascending, TaskInboxFilterBean filters) {
+        TaskBean bean = new TaskBean();
+        bean.setPriority(filters.getPriority());
+        MockTaskRow probe = new MockTaskRow(-1, bean);
+        return Collections.singletonList(valueRange(index, MockTaskSortColumn.priority, ascending, probe, probe));
+    }
+
+    /**
+     * Finds the runs of the given due date index that match the due date
+     * filters.  Tasks without a due date sort before all others, and are
+     * always included.
+     * @param index
+     * @param ascending
+     * @param filters
+     */
+    private List<Range> dueDateRanges(MockTaskSortIndex index, boolean ascending, TaskInboxFilterBean filters) {
+        MockTaskRow from = filters.getDateDueFrom() == null ? null : dueDateProbe(filters.getDateDueFrom());
+        MockTaskRow to = filters.getDateDueTo() == null ? null : dueDateProbe(filters.getDateDueTo());
+        Range dated = valueRange(index, MockTaskSortColumn.dueOn, ascending, from, to);
+        if (from == null) {
+            // With no lower bound the undated tasks are already part of the range.
+            return Collections.singletonList(dated);
+        }
+        MockTaskRow none = dueDateProbe(null);
+        Range undated = valueRange(index, MockTaskSortColumn.dueOn, ascending, none, none);
+        List<Range> ranges = new ArrayList<Range>(2);
+        if (ascending) {
+            ranges.add(undated);
+            ranges.add(dated);
+        } else {
+            ranges.add(dated);
+            ranges.add(undated);
+        }
+        return ranges;
+    }
+
+    /**
+     * @param dueDate
+     */
+    private static MockTaskRow dueDateProbe(Date dueDate) {
+        TaskBean bean = new TaskBean();
+        bean.setDueDate(dueDate);
+        return new MockTaskRow(-1, bean);
+    }
+
+    /**
+     * Searches an index for the run of rows whose column value lies
+     * between the values of the two probe rows (inclusive).  A null probe
+     * leaves that end of the range open.
+     * @param index
+     * @param column
+     * @param ascending
+     * @param low
+     * @param high
+     */
+    private Range valueRange(MockTaskSortIndex index, MockTaskSortColumn column, boolean ascending,
+            MockTaskRow low, MockTaskRow high) {
+        MockTaskRow first = ascending ? low : high;
+        MockTaskRow last = ascending ? high : low;
+        int from = first == null ? 0 : bound(index, column, ascending, first, false);
+        int to = last == null ? index.size() : bound(index, column, ascending, last, true);
+        return new Range(from, Math.max(from, to));
+    }
+
+    /**
+     * Returns the position of the first row in the index that sorts at or
+     * after (or, if strict, strictly after) the value of the probe row.
+     * @param index
+     * @param column
+     * @param ascending
+     * @param probe
+     * @param strict
+     */
+    private static int bound(MockTaskSortIndex index, final MockTaskSortColumn column, final boolean ascending,
+            final MockTaskRow probe, final boolean strict) {
+        return index.count(new MockTaskSortIndex.Boundary() {
+            @Override
+            public boolean isBefore(MockTaskRow row) {
+                int cmp = column.compareValues(row, probe);
+                if (!ascending) {
+                    cmp = -cmp;
+                }
+                return cmp < 0 || (strict && cmp == 0);
+            }
+        });
+    }
+
+    /**
+     * Takes a page out of the given runs of an index.
+     * @param index
+     * @param ranges
+     * @param startIndex
+     * @param endIndex
+     */
+    private static Page slice(MockTaskSortIndex index, List<Range> ranges, int startIndex, int endIndex) {
+        List<MockTaskRow> page = new ArrayList<MockTaskRow>();
+        int position = 0;
+        for (Range range : ranges) {
+            int length = range.to - range.from;
+            int from = Math.max(startIndex - position, 0);
+            int to = Math.min(endIndex + 1 - position, length);
+            if (from < to) {
+                Iterator<MockTaskRow> iter = index.iterator(range.from + from);
+                for (int i = from; i < to; i++) {
+                    page.add(iter.next());
+                }
+            }
+            position += length;
+        }
+        return new Page(page, position);
+    }
+
+    /**
+     * @param ranges
+     */
+    private static int count(List<Range> ranges) {
+        int count = 0;
+        for (Range range : ranges) {
+            count += range.to - range.from;
+        }
+        return count;
+    }
+
+    /**
+     * @param value
+     */
+    private static int log2(int value) {
+        return 32 - Integer.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * Returns true if the index for the given column/direction hasn't been
+     * built yet.  Caller must hold the lock.
+     * @param column
+     * @param ascending
+     */
+    private boolean isStale(MockTaskSortColumn column, boolean ascending) {
+        return (ascending ? ascendingIndexes : descendingIndexes)[column.ordinal()] == null;
+    }
+
+    /**
+     * Returns the index for the given column/direction, building it on first
+     * use.  If the index hasn't been built yet the caller must hold the write
+     * lock.
+     * @param column
+     * @param ascending
+     */
+    private MockTaskSortIndex index(MockTaskSortColumn column, boolean ascending) {
+        MockTaskSortIndex[] indexes = ascending ? ascendingIndexes : descendingIndexes;
+        MockTaskSortIndex index = indexes[column.ordinal()];
+        if (index == null) {
+            index = new MockTaskSortIndex(this, column.comparator(ascending), Arrays.copyOf(rows, size));
+            indexes[column.ordinal()] = index;
+        }
+        return index;
+    }
+
+    /**
+     * A page of query results.
+     */
+    public static class Page {
+
+        private final List<MockTaskRow> rows;
+        private final int totalResults;
+
+        /**
+         * Constructor.
+         * @param rows
+         * @param totalResults
+         */
+        public Page(List<MockTaskRow> rows, int totalResults) {
+            this.rows = rows;
+            this.totalResults = totalResults;
+        }
+
+        /**
+         * @return the rows in this page
+         */
+        public List<MockTaskRow> getRows() {
+            return rows;
+        }
+
+        /**
+         * @return the total number of matching tasks
+         */
+        public int getTotalResults() {
+            return totalResults;
+        }
+    }
+
+    /**
+     * A half-open run [from, to) of positions in an index.
+     */
+    private static class Range {
+
+        private final int from;
+        private final int to;
+
+        /**
+         * Constructor.
+         * @param from
+         * @param to
+         */
+        public Range(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+}
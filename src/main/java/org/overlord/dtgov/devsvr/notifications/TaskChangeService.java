@@ -0,0 +1,233 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.notifications;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.errai.bus.client.api.base.MessageBuilder;
+import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.bus.client.api.messaging.MessageBus;
+import org.jboss.errai.bus.client.api.messaging.MessageCallback;
+import org.jboss.errai.bus.server.api.QueueSession;
+import org.jboss.errai.bus.server.api.SessionEndEvent;
+import org.jboss.errai.bus.server.api.SessionEndListener;
+import org.overlord.dtgov.devsvr.mock.MockTaskChange;
+import org.overlord.dtgov.devsvr.mock.MockTaskChangeNotifier;
+import org.overlord.dtgov.devsvr.mock.MockTaskFilterBean;
+import org.overlord.dtgov.devsvr.mock.MockTaskStatus;
+import org.overlord.dtgov.ui.client.shared.beans.TaskSummaryBean;
+
+/**
+ * Pushes task changes (see {@link MockTaskChangeNotifier}) to bus clients
+ * over the Errai bus, so that an open inbox can apply them as deltas instead
+ * of polling the whole inbox again.
+ *
+ * A client subscribes by sending a <code>subscribe</code> command to the
+ * {@link #SUBJECT} subject, with a <code>ReplyTo</code> subject and its
+ * inbox filters as optional parts: <code>priority</code> (Integer),
+ * <code>dueFrom</code> and <code>dueTo</code> (Long, millis),
+ * <code>owner</code>, <code>unowned</code> (Boolean), <code>type</code>,
+ * <code>text</code> and <code>statuses</code> (comma separated; unknown
+ * statuses match nothing).  Batches of changes then arrive on the reply
+ * subject, with the parts <code>changed</code> (the new summaries of the
+ * tasks that match), <code>removed</code> (the ids of the tasks that stopped
+ * matching) and <code>types</code> (task id to change type).  An
+ * <code>unsubscribe</code> command (with the same reply subject) or the end
+ * of the client's bus session stops them.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class TaskChangeService implements MessageCallback {
+
+    public static final String SUBJECT = "TaskChangeService"; //$NON-NLS-1$
+    private static final String COMMAND_SUBSCRIBE = "subscribe"; //$NON-NLS-1$
+    private static final String COMMAND_UNSUBSCRIBE = "unsubscribe"; //$NON-NLS-1$
+
+    private final MessageBus bus;
+    private final ConcurrentMap<String, MockTaskChangeNotifier.Subscription> subscriptions = new ConcurrentHashMap<String, MockTaskChangeNotifier.Subscription>();
+    // The bus sessions that already have a session end listener
+    private final Set<String> sessions = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Constructor.
+     * @param bus
+     */
+    public TaskChangeService(MessageBus bus) {
+        this.bus = bus;
+    }
+
+    /**
+     * Starts taking subscriptions.
+     */
+    public void start() {
+        bus.subscribe(SUBJECT, this);
+    }
+
+    /**
+     * @see org.jboss.errai.bus.client.api.messaging.MessageCallback#callback(org.jboss.errai.bus.client.api.messaging.Message)
+     */
+    @Override
+    public void callback(Message message) {
+        QueueSession session = message.getResource(QueueSession.class, "Session"); //$NON-NLS-1$
+        String replyTo = message.get(String.class, "ReplyTo"); //$NON-NLS-1$
+        if (session == null || replyTo == null) {
+            return;
+        }
+        final String sessionId = session.getSessionId();
+        String key = sessionId + '/' + replyTo;
+        if (COMMAND_SUBSCRIBE.equals(message.getCommandType())) {
+            BusListener listener = new BusListener(key, message);
+            MockTaskChangeNotifier.Subscription subscription = MockTaskChangeNotifier.getInstance().subscribe(
+                    toFilters(message), listener);
+            listener.subscription = subscription;
+            MockTaskChangeNotifier.Subscription previous = subscriptions.put(key, subscription);
+            if (previous != null) {
+                previous.cancel();
+            }
+            // One listener per session, however many times it subscribes
+            if (sessions.add(sessionId)) {
+                session.addSessionEndListener(new SessionEndListener() {
+                    @Override
+                    public void onSessionEnd(SessionEndEvent event) {
+                        cancelAll(sessionId);
+                    }
+                });
+            }
+        } else if (COMMAND_UNSUBSCRIBE.equals(message.getCommandType())) {
+            cancel(key);
+        }
+    }
+
+    /**
+     * @param key
+     */
+    private void cancel(String key) {
+        MockTaskChangeNotifier.Subscription subscription = subscriptions.remove(key);
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    /**
+     * Cancels all of a bus session's subscriptions.
+     * @param sessionId
+     */
+    private void cancelAll(String sessionId) {
+        sessions.remove(sessionId);
+        String prefix = sessionId + '/';
+        for (String key : subscriptions.keySet()) {
+            if (key.startsWith(prefix)) {
+                cancel(key);
+            }
+        }
+    }
+
+    /**
+     * Reads a subscriber's filters out of its subscribe message.
+     * @param message
+     */
+    private static MockTaskFilterBean toFilters(Message message) {
+        MockTaskFilterBean filters = new MockTaskFilterBean();
+        if (message.hasPart("priority")) { //$NON-NLS-1$
+            filters.setPriority(message.get(Integer.class, "priority")); //$NON-NLS-1$
+        }
+        if (message.hasPart("dueFrom")) { //$NON-NLS-1$
+            filters.setDateDueFrom(new Date(message.get(Long.class, "dueFrom"))); //$NON-NLS-1$
+        }
+        if (message.hasPart("dueTo")) { //$NON-NLS-1$
+            filters.setDateDueTo(new Date(message.get(Long.class, "dueTo"))); //$NON-NLS-1$
+        }
+        filters.setOwner(message.get(String.class, "owner")); //$NON-NLS-1$
+        filters.setUnowned(Boolean.TRUE.equals(message.get(Boolean.class, "unowned"))); //$NON-NLS-1$
+        filters.setType(message.get(String.class, "type")); //$NON-NLS-1$
+        filters.setText(message.get(String.class, "text")); //$NON-NLS-1$
+        String statuses = message.get(String.class, "statuses"); //$NON-NLS-1$
+        if (statuses != null) {
+            Set<MockTaskStatus> set = EnumSet.noneOf(MockTaskStatus.class);
+            for (String status : statuses.split(",")) { //$NON-NLS-1$
+                try {
+                    set.add(MockTaskStatus.valueOf(status.trim()));
+                } catch (IllegalArgumentException e) {
+                    // No mock task ever has this status, so it can't match anything
+                }
+            }
+            filters.setStatuses(set);
+        }
+        return filters;
+    }
+
+    /**
+     * Sends a subscriber's changes back to it.
+     */
+    private class BusListener implements MockTaskChangeNotifier.Listener {
+
+        private final String key;
+        private final Message subscribeMessage;
+        private volatile MockTaskChangeNotifier.Subscription subscription;
+
+        /**
+         * Constructor.
+         * @param key
+         * @param subscribeMessage
+         */
+        public BusListener(String key, Message subscribeMessage) {
+            this.key = key;
+            this.subscribeMessage = subscribeMessage;
+        }
+
+        /**
+         * @see org.overlord.dtgov.devsvr.mock.MockTaskChangeNotifier.Listener#tasksChanged(java.util.List)
+         */
+        @Override
+        public void tasksChanged(List<MockTaskChange> changes) {
+            List<TaskSummaryBean> changed = new ArrayList<TaskSummaryBean>();
+            List<String> removed = new ArrayList<String>();
+            Map<String, String> types = new HashMap<String, String>();
+            for (MockTaskChange change : changes) {
+                if (change.isRemoved()) {
+                    removed.add(change.getTaskId());
+                } else {
+                    changed.add(change.getSummary());
+                }
+                types.put(change.getTaskId(), change.getType().toString());
+            }
+            try {
+                MessageBuilder.createConversation(subscribeMessage).subjectProvided().signalling()
+                        .with("changed", changed) //$NON-NLS-1$
+                        .with("removed", removed) //$NON-NLS-1$
+                        .with("types", types) //$NON-NLS-1$
+                        .noErrorHandling().sendNowWith(bus);
+            } catch (RuntimeException e) {
+                // The client has gone away - the notifier drops the subscription (but
+                // a newer one under the same key is left alone)
+                if (subscription != null) {
+                    subscriptions.remove(key, subscription);
+                }
+                throw e;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.servlets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Serves static resources the way a production deployment would, so that UI
+ * load times can be measured realistically: resolved resources are cached
+ * in memory along with a content-hash ETag and a precompressed gzip variant,
+ * and are sent with long-lived Cache-Control headers.  Pages (and GWT
+ * <code>.nocache.</code> files) are always revalidated, GWT
+ * <code>.cache.</code> files are cached for a year.
+ *
+ * To keep the usual live-edit behaviour, a background watcher checks the
+ * files behind the cached entries and evicts only the ones that changed.
+ * (The dev server targets Java 6, so this polls rather than using a
+ * WatchService.)
+ *
+ * Init parameters: <code>resourceBases</code> ('|' separated, searched in
+ * order), <code>maxAge</code> (seconds, for everything else - default one
+ * hour) and <code>watchInterval</code> (millis, default 1000).
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class CachingResourceServlet extends HttpServlet {
+
+    private static final long serialVersionUID = -5393958633573046181L;
+    private static final long ONE_YEAR = 365L * 24 * 60 * 60;
+    private static final String[] COMPRESSIBLE_TYPES = { "text/", "application/javascript", "application/x-javascript" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+    private final Map<String, CachedResource> cache = new ConcurrentHashMap<String, CachedResource>();
+    private final List<File> resourceBases = new ArrayList<File>();
+    private long maxAge;
+    private ScheduledExecutorService watcher;
+
+    /**
+     * Constructor.
+     */
+    public CachingResourceServlet() {
+    }
+
+    /**
+     * @see javax.servlet.GenericServlet#init()
+     */
+    @Override
+    public void init() throws ServletException {
+        String bases = getInitParameter("resourceBases"); //$NON-NLS-1$
+        if (bases == null) {
+            throw new ServletException("Missing init parameter: resourceBases"); //$NON-NLS-1$
+        }
+        for (String base : bases.split("\\|")) { //$NON-NLS-1$
+            resourceBases.add(new File(base));
+        }
+        maxAge = Long.parseLong(getInitParameter("maxAge", "3600")); //$NON-NLS-1$ //$NON-NLS-2$
+        long watchInterval = Long.parseLong(getInitParameter("watchInterval", "1000")); //$NON-NLS-1$ //$NON-NLS-2$
+        watcher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "resource-cache-watcher"); //$NON-NLS-1$
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        watcher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                evictChanged();
+            }
+        }, watchInterval, watchInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @see javax.servlet.GenericServlet#destroy()
+     */
+    @Override
+    public void destroy() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+        }
+        cache.clear();
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServlet#doGet(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        String path = req.getServletPath() + (req.getPathInfo() == null ? "" : req.getPathInfo()); //$NON-NLS-1$
+        CachedResource resource = cache.get(path);
+        if (resource == null) {
+            resource = load(path);
+            if (resource == null) {
+                resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            cache.put(path, resource);
+        }
+
+        resp.setHeader("ETag", resource.etag); //$NON-NLS-1$
+        resp.setHeader("Cache-Control", cacheControl(path)); //$NON-NLS-1$
+        resp.setDateHeader("Last-Modified", resource.lastModified); //$NON-NLS-1$
+        if (resource.gzipped != null) {
+            resp.setHeader("Vary", "Accept-Encoding"); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        String ifNoneMatch = req.getHeader("If-None-Match"); //$NON-NLS-1$
+        if (ifNoneMatch != null && (ifNoneMatch.contains(resource.etag) || "*".equals(ifNoneMatch.trim()))) { //$NON-NLS-1$
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] content = resource.content;
+        String acceptEncoding = req.getHeader("Accept-Encoding"); //$NON-NLS-1$
+        if (resource.gzipped != null && acceptEncoding != null && acceptEncoding.contains("gzip")) { //$NON-NLS-1$
+            content = resource.gzipped;
+            resp.setHeader("Content-Encoding", "gzip"); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        if (resource.contentType != null) {
+            resp.setContentType(resource.contentType);
+        }
+        resp.setContentLength(content.length);
+        OutputStream out = resp.getOutputStream();
+        out.write(content);
+        out.flush();
+    }
+
+    /**
+     * Resolves a path against the resource bases and loads it.
+     * @param path
+     * @return the loaded resource, or null if there is no such file
+     */
+    private CachedResource load(String path) throws IOException {
+        if (path.contains("..")) { //$NON-NLS-1$
+            return null;
+        }
+        for (File base : resourceBases) {
+            File file = new File(base, path);
+            if (file.isFile()) {
+                // Stat before reading, so that a change made during the read is still picked up
+                long lastModified = file.lastModified();
+                long length = file.length();
+                byte[] content = FileUtils.readFileToByteArray(file);
+                String contentType = getServletContext().getMimeType(file.getName());
+                return new CachedResource(file, lastModified, length, content, contentType);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the cached entries whose files have changed (or gone away).
+     */
+    private void evictChanged() {
+        Iterator<CachedResource> iter = cache.values().iterator();
+        while (iter.hasNext()) {
+            CachedResource resource = iter.next();
+            if (resource.isStale()) {
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * @param path
+     * @return the Cache-Control header for the given path
+     */
+    private String cacheControl(String path) {
+        if (path.contains(".nocache.") || path.endsWith(".html")) { //$NON-NLS-1$ //$NON-NLS-2$
+            return "no-cache"; //$NON-NLS-1$
+        } else if (path.contains(".cache.")) { //$NON-NLS-1$
+            return "public, max-age=" + ONE_YEAR; //$NON-NLS-1$
+        } else {
+            return "public, max-age=" + maxAge; //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * @param name
+     * @param defaultValue
+     */
+    private String getInitParameter(String name, String defaultValue) {
+        String value = getInitParameter(name);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * A resolved resource, with its ETag and (for text) gzipped content.
+     */
+    private static class CachedResource {
+
+        private final File file;
+        private final long lastModified;
+        private final long length;
+        private final byte[] content;
+        private final byte[] gzipped;
+        private final String contentType;
+        private final String etag;
+
+        /**
+         * Constructor.
+         * @param file
+         * @param lastModified
+         * @param length
+         * @param content
+         * @param contentType
+         */
+        public CachedResource(File file, long lastModified, long length, byte[] content, String contentType) throws IOException {
+            this.file = file;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.content = content;
+            this.contentType = contentType;
+            this.etag = '"' + sha1(content) + '"';
+            this.gzipped = isCompressible(contentType) ? gzip(content) : null;
+        }
+
+        /**
+         * @return true if the file has changed since it was loaded
+         */
+        public boolean isStale() {
+            return file.lastModified() != lastModified || file.length() != length;
+        }
+
+        /**
+         * @param contentType
+         */
+        private static boolean isCompressible(String contentType) {
+            if (contentType == null) {
+                return false;
+            }
+            for (String type : COMPRESSIBLE_TYPES) {
+                if (contentType.startsWith(type)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @param content
+         * @return the gzipped content, or null if it doesn't get any smaller
+         */
+        private static byte[] gzip(byte[] content) throws IOException {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(content.length / 2 + 64);
+            GZIPOutputStream gzip = new GZIPOutputStream(baos);
+            gzip.write(content);
+            gzip.close();
+            return baos.size() < content.length ? baos.toByteArray() : null;
+        }
+
+        /**
+         * @param content
+         */
+        private static String sha1(byte[] content) {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+            StringBuilder builder = new StringBuilder();
+            for (byte b : digest.digest(content)) {
+                builder.append(String.format("%02x", b & 0xff)); //$NON-NLS-1$
+            }
+            return builder.toString();
+        }
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.servlets;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.IOUtils;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.DocumentArtifactType;
+import org.overlord.dtgov.ui.server.DtgovUIConfig;
+import org.overlord.sramp.client.SrampAtomApiClient;
+import org.overlord.sramp.common.ArtifactType;
+
+/**
+ * A drop-in replacement for the dtgov UI's deployment download servlet that
+ * streams the artifact content from the S-RAMP client to the response
+ * without holding it in memory.  The content length is taken from the
+ * artifact's meta-data, so the response is sent as-is rather than being
+ * buffered or chunked by Jetty.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class StreamingDeploymentDownloadServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 4313745392815442391L;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Constructor.
+     */
+    public StreamingDeploymentDownloadServlet() {
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServlet#doGet(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        String uuid = req.getParameter("uuid"); //$NON-NLS-1$
+        if (uuid == null) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing 'uuid' parameter."); //$NON-NLS-1$
+            return;
+        }
+        InputStream content = null;
+        try {
+            SrampAtomApiClient client = new SrampAtomApiClient(System.getProperty(DtgovUIConfig.SRAMP_ATOM_API_ENDPOINT));
+            BaseArtifactType artifact = client.getArtifactMetaData(uuid);
+            content = client.getArtifactContent(ArtifactType.valueOf(artifact), uuid);
+
+            String contentType = null;
+            Long contentSize = null;
+            if (artifact instanceof DocumentArtifactType) {
+                contentType = ((DocumentArtifactType) artifact).getContentType();
+                contentSize = ((DocumentArtifactType) artifact).getContentSize();
+            }
+            resp.setContentType(contentType == null ? "application/octet-stream" : contentType); //$NON-NLS-1$
+            if (contentSize != null) {
+                resp.setHeader("Content-Length", String.valueOf(contentSize)); //$NON-NLS-1$
+            }
+            resp.setHeader("Content-Disposition", "attachment; filename=\"" + artifact.getName() + "\""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            resp.setHeader("Cache-control", "no-cache"); //$NON-NLS-1$ //$NON-NLS-2$
+            resp.setHeader("Pragma", "no-cache"); //$NON-NLS-1$ //$NON-NLS-2$
+            resp.setDateHeader("Expires", 0); //$NON-NLS-1$
+
+            OutputStream out = resp.getOutputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            if (resp.isCommitted()) {
+                throw new ServletException(e);
+            }
+            resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Failed to download deployment " + uuid + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+        } finally {
+            IOUtils.closeQuietly(content);
+        }
+    }
+
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.servlets;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.apache.commons.fileupload.util.Streams;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.oasis_open.docs.s_ramp.ns.s_ramp_v1.BaseArtifactType;
+import org.overlord.dtgov.ui.server.DtgovUIConfig;
+import org.overlord.sramp.atom.archive.SrampArchive;
+import org.overlord.sramp.atom.archive.expand.DefaultMetaDataFactory;
+import org.overlord.sramp.atom.archive.expand.ZipToSrampArchive;
+import org.overlord.sramp.atom.archive.expand.registry.ZipToSrampArchiveRegistry;
+import org.overlord.sramp.client.SrampAtomApiClient;
+import org.overlord.sramp.common.ArtifactType;
+
+/**
+ * A drop-in replacement for the dtgov UI's deployment upload servlet that
+ * streams the uploaded file straight from the request body to the S-RAMP
+ * client, rather than first parsing the whole multipart request into
+ * memory or temp files.
+ *
+ * The file is only copied to disk when it has to be: when it is a
+ * deployment type that gets expanded (the copy is tee'd off the upload, so
+ * the request body is still read exactly once), or when the browser sends
+ * the file before the deployment type.  The response has the same fields
+ * as the stock servlet's, so the UI can't tell the difference.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class StreamingDeploymentUploadServlet extends HttpServlet {
+
+    private static final long serialVersionUID = -2619306367543728254L;
+    private static final String EXPANDED_TYPE = "SwitchYardApplication"; //$NON-NLS-1$
+
+    /**
+     * Constructor.
+     */
+    public StreamingDeploymentUploadServlet() {
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServlet#doPost(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)
+     */
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (!ServletFileUpload.isMultipartContent(req)) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Request contents type is not supported by the servlet."); //$NON-NLS-1$
+            return;
+        }
+        Map<String, String> responseMap = new LinkedHashMap<String, String>();
+        File copy = null;
+        try {
+            SrampAtomApiClient client = new SrampAtomApiClient(System.getProperty(DtgovUIConfig.SRAMP_ATOM_API_ENDPOINT));
+            String deploymentType = null;
+            String version = null;
+            String fileName = null;
+            ArtifactType type = null;
+            BaseArtifactType artifact = null;
+
+            FileItemIterator items = new ServletFileUpload().getItemIterator(req);
+            while (items.hasNext()) {
+                FileItemStream item = items.next();
+                InputStream content = item.openStream();
+                try {
+                    if (item.isFormField()) {
+                        String value = Streams.asString(content, "UTF-8"); //$NON-NLS-1$
+                        if ("deploymentType".equals(item.getFieldName())) { //$NON-NLS-1$
+                            deploymentType = value;
+                        } else if ("version".equals(item.getFieldName())) { //$NON-NLS-1$
+                            version = value;
+                        }
+                    } else if (artifact == null && copy == null) {
+                        fileName = item.getName() == null ? null : FilenameUtils.getName(item.getName());
+                        if (deploymentType == null) {
+                            // Don't know what it is yet - park it on disk until the form is parsed
+                            copy = File.createTempFile("dtgov-upload-", ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+                            FileUtils.copyInputStreamToFile(content, copy);
+                        } else {
+                            type = ArtifactType.valueOf(deploymentType);
+                            if (EXPANDED_TYPE.equals(type.getExtendedType())) {
+                                copy = File.createTempFile("dtgov-upload-", ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+                            }
+                            artifact = upload(client, type, content, fileName, copy);
+                        }
+                    }
+                } finally {
+                    IOUtils.closeQuietly(content);
+                }
+            }
+
+            if (artifact == null) {
+                if (copy == null || deploymentType == null) {
+                    throw new Exception("The upload must include a deployment type and a file."); //$NON-NLS-1$
+                }
+                type = ArtifactType.valueOf(deploymentType);
+                InputStream content = new FileInputStream(copy);
+                try {
+                    artifact = upload(client, type, content, fileName, null);
+                } finally {
+                    IOUtils.closeQuietly(content);
+                }
+            }
+            if (version != null && version.trim().length() > 0) {
+                artifact.setVersion(version);
+                client.updateArtifactMetaData(artifact);
+            }
+            responseMap.put("model", type.getModel()); //$NON-NLS-1$
+            responseMap.put("type", type.getType()); //$NON-NLS-1$
+            responseMap.put("uuid", artifact.getUuid()); //$NON-NLS-1$
+            if (EXPANDED_TYPE.equals(type.getExtendedType())) {
+                expand(client, type, artifact, copy, responseMap);
+            }
+        } catch (Throwable t) {
+            responseMap.clear();
+            responseMap.put("exception", "true"); //$NON-NLS-1$ //$NON-NLS-2$
+            responseMap.put("exception-message", String.valueOf(t.getMessage())); //$NON-NLS-1$
+        } finally {
+            FileUtils.deleteQuietly(copy);
+        }
+        writeToResponse(responseMap, resp);
+    }
+
+    /**
+     * Uploads the deployment content, optionally tee'ing it into a local copy
+     * on the way through.
+     * @param client
+     * @param type
+     * @param content
+     * @param fileName
+     * @param copy where to put a copy of the content, or null
+     */
+    private static BaseArtifactType upload(SrampAtomApiClient client, ArtifactType type, InputStream content,
+            String fileName, File copy) throws Exception {
+        if (copy == null) {
+            return client.uploadArtifact(type, content, fileName);
+        }
+        InputStream tee = new TeeInputStream(content, new FileOutputStream(copy), true);
+        try {
+            BaseArtifactType artifact = client.uploadArtifact(type, tee, fileName);
+            // Make sure the copy is complete, even if the client stopped short of EOF
+            IOUtils.copy(tee, new NullOutputStream());
+            return artifact;
+        } finally {
+            IOUtils.closeQuietly(tee);
+        }
+    }
+
+    /**
+     * Expands the uploaded deployment (from its local copy) into its derived
+     * artifacts.
+     * @param client
+     * @param type
+     * @param artifact
+     * @param copy
+     * @param responseMap
+     */
+    private static void expand(SrampAtomApiClient client, ArtifactType type, BaseArtifactType artifact, File copy,
+            Map<String, String> responseMap) throws Exception {
+        ZipToSrampArchive expander = null;
+        SrampArchive archive = null;
+        try {
+            expander = ZipToSrampArchiveRegistry.createExpander(type, copy);
+            if (expander == null) {
+                return;
+            }
+            expander.setContextParam(DefaultMetaDataFactory.PARENT_UUID, artifact.getUuid());
+            archive = expander.createSrampArchive();
+            Map<String, ?> results = client.uploadBatch(archive);
+            int failed = 0;
+            for (Object result : results.values()) {
+                if (result instanceof Exception) {
+                    failed++;
+                }
+            }
+            responseMap.put("batch", "true"); //$NON-NLS-1$ //$NON-NLS-2$
+            responseMap.put("batchTotal", String.valueOf(results.size())); //$NON-NLS-1$
+            responseMap.put("batchNumSuccess", String.valueOf(results.size() - failed)); //$NON-NLS-1$
+            responseMap.put("batchNumFailed", String.valueOf(failed)); //$NON-NLS-1$
+        } finally {
+            SrampArchive.closeQuietly(archive);
+            ZipToSrampArchive.closeQuietly(expander);
+        }
+    }
+
+    /**
+     * Writes the response values as a JSON object (the UI reads it back out
+     * of the hidden upload frame, hence text/html).
+     * @param responseMap
+     * @param resp
+     */
+    private static void writeToResponse(Map<String, String> responseMap, HttpServletResponse resp) throws IOException {
+        resp.setContentType("text/html"); //$NON-NLS-1$
+        resp.setHeader("Cache-control", "no-cache"); //$NON-NLS-1$ //$NON-NLS-2$
+        OutputStream out = resp.getOutputStream();
+        Writer writer = new OutputStreamWriter(out, "UTF-8"); //$NON-NLS-1$
+        writer.write('{');
+        boolean first = true;
+        for (Map.Entry<String, String> entry : responseMap.entrySet()) {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+            writeString(writer, entry.getKey());
+            writer.write(':');
+            writeString(writer, entry.getValue());
+        }
+        writer.write('}');
+        writer.flush();
+    }
+
+    /**
+     * Writes a JSON string literal.
+     * @param writer
+     * @param value
+     */
+    private static void writeString(Writer writer, String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20 || c == '<' || c == '>') {
+                // Also escape markup, since this is written into an HTML frame
+                writer.write(String.format("\\u%04x", (int) c)); //$NON-NLS-1$
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.servlets;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.overlord.dtgov.devsvr.mock.MockTaskActionResult;
+import org.overlord.dtgov.devsvr.mock.MockTaskClient;
+import org.overlord.dtgov.ui.client.shared.beans.TaskActionEnum;
+import org.overlord.dtgov.ui.client.shared.beans.TaskBean;
+
+/**
+ * Applies one task action to many tasks in a single request (see
+ * {@link MockTaskClient#executeActions(List, TaskActionEnum, Map)}), so that
+ * claiming or completing a screenful of inbox tasks is one round trip
+ * rather than one per task.
+ *
+ * Parameters: <code>action</code> (claim, release, start, stop, complete or
+ * fail), <code>taskId</code> (repeated, once per task) and, for complete and
+ * fail, the task data as <code>data.NAME=VALUE</code>.  The response is a
+ * JSON object with one result per task, in the order given.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class TaskActionsServlet extends HttpServlet {
+
+    private static final long serialVersionUID = -8032512873125468416L;
+    private static final String DATA_PREFIX = "data."; //$NON-NLS-1$
+
+    private final MockTaskClient tasks = new MockTaskClient();
+
+    /**
+     * Constructor.
+     */
+    public TaskActionsServlet() {
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServlet#doPost(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)
+     */
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        String actionName = req.getParameter("action"); //$NON-NLS-1$
+        String[] taskIds = req.getParameterValues("taskId"); //$NON-NLS-1$
+        if (actionName == null || taskIds == null) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing 'action' or 'taskId' parameter."); //$NON-NLS-1$
+            return;
+        }
+        TaskActionEnum action;
+        try {
+            action = TaskActionEnum.valueOf(actionName);
+        } catch (IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown action: " + actionName); //$NON-NLS-1$
+            return;
+        }
+        Map<String, String> taskData = new HashMap<String, String>();
+        Enumeration<?> names = req.getParameterNames();
+        while (names.hasMoreElements()) {
+            String name = (String) names.nextElement();
+            if (name.startsWith(DATA_PREFIX)) {
+                taskData.put(name.substring(DATA_PREFIX.length()), req.getParameter(name));
+            }
+        }
+
+        List<MockTaskActionResult> results;
+        try {
+            results = tasks.executeActions(Arrays.asList(taskIds), action, taskData);
+        } catch (IllegalArgumentException e) {
+            // Unsupported action, missing or repeated task ids
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        } catch (Exception e) {
+            throw new ServletException(e);
+        }
+
+        resp.setContentType("application/json; charset=UTF-8"); //$NON-NLS-1$
+        resp.setHeader("Cache-Control", "no-cache"); //$NON-NLS-1$ //$NON-NLS-2$
+        Writer writer = new OutputStreamWriter(resp.getOutputStream(), "UTF-8"); //$NON-NLS-1$
+        writer.write("{\"results\":["); //$NON-NLS-1$
+        for (int i = 0; i < results.size(); i++) {
+            MockTaskActionResult result = results.get(i);
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write('{');
+            writeField(writer, "id", result.getTaskId()); //$NON-NLS-1$
+            writer.write(',');
+            writeString(writer, "success"); //$NON-NLS-1$
+            writer.write(':');
+            writer.write(String.valueOf(result.isSuccess()));
+            writer.write(',');
+            if (result.isSuccess()) {
+                TaskBean task = result.getTask();
+                writeField(writer, "status", task.getStatus()); //$NON-NLS-1$
+                writer.write(',');
+                writeField(writer, "owner", task.getOwner()); //$NON-NLS-1$
+            } else {
+                writeField(writer, "error", result.getError()); //$NON-NLS-1$
+            }
+            writer.write('}');
+        }
+        writer.write("]}"); //$NON-NLS-1$
+        writer.flush();
+    }
+
+    /**
+     * Writes a JSON name/value pair (a null value is written as null).
+     * @param writer
+     * @param name
+     * @param value
+     */
+    private static void writeField(Writer writer, String name, String value) throws IOException {
+        writeString(writer, name);
+        writer.write(':');
+        if (value == null) {
+            writer.write("null"); //$NON-NLS-1$
+        } else {
+            writeString(writer, value);
+        }
+    }
+
+    /**
+     * Writes a JSON string literal.
+     * @param writer
+     * @param value
+     */
+    private static void writeString(Writer writer, String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write(String.format("\\u%04x", (int) c)); //$NON-NLS-1$
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.servlets;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.overlord.dtgov.devsvr.mock.MockTaskFormCache;
+
+/**
+ * Serves the cached task form for a task type (<code>?type=TYPE</code>), or
+ * a 404 if the type is unknown.
+ * The form's version is sent as its ETag, so a client that already has the
+ * current form gets a 304 instead of the form, and the form is sent
+ * precompressed to clients that accept gzip.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class TaskFormServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 2466170846113851523L;
+
+    /**
+     * Constructor.
+     */
+    public TaskFormServlet() {
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServlet#doGet(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        String type = req.getParameter("type"); //$NON-NLS-1$
+        if (type == null) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing 'type' parameter."); //$NON-NLS-1$
+            return;
+        }
+        MockTaskFormCache.TaskForm form = MockTaskFormCache.getInstance().find(type);
+        if (form == null) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND, "No form for task type: " + type); //$NON-NLS-1$
+            return;
+        }
+        String etag = '"' + form.getVersion() + '"';
+        resp.setHeader("ETag", etag); //$NON-NLS-1$
+        resp.setHeader("Cache-Control", "no-cache"); //$NON-NLS-1$ //$NON-NLS-2$
+        resp.setHeader("Vary", "Accept-Encoding"); //$NON-NLS-1$ //$NON-NLS-2$
+        String ifNoneMatch = req.getHeader("If-None-Match"); //$NON-NLS-1$
+        if (ifNoneMatch != null && ifNoneMatch.contains(etag)) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        byte[] content = form.getContent();
+        String acceptEncoding = req.getHeader("Accept-Encoding"); //$NON-NLS-1$
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) { //$NON-NLS-1$
+            content = form.getGzipped();
+            resp.setHeader("Content-Encoding", "gzip"); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        resp.setContentType("text/html; charset=UTF-8"); //$NON-NLS-1$
+        resp.setContentLength(content.length);
+        OutputStream out = resp.getOutputStream();
+        out.write(content);
+        out.flush();
+    }
+
+}
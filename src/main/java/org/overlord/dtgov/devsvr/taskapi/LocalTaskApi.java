@@ -0,0 +1,326 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.taskapi;
+
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.overlord.dtgov.devsvr.mock.MockTaskClient;
+import org.overlord.dtgov.devsvr.mock.MockTaskConflictException;
+import org.overlord.dtgov.devsvr.mock.MockTaskFilterBean;
+import org.overlord.dtgov.devsvr.mock.MockTaskNotFoundException;
+import org.overlord.dtgov.devsvr.mock.MockTaskSortColumn;
+import org.overlord.dtgov.devsvr.mock.MockTaskStatus;
+import org.overlord.dtgov.taskapi.types.FindTasksRequest;
+import org.overlord.dtgov.taskapi.types.FindTasksResponse;
+import org.overlord.dtgov.taskapi.types.StatusType;
+import org.overlord.dtgov.taskapi.types.TaskDataType;
+import org.overlord.dtgov.taskapi.types.TaskSummaryType;
+import org.overlord.dtgov.taskapi.types.TaskType;
+import org.overlord.dtgov.ui.client.shared.beans.TaskActionEnum;
+import org.overlord.dtgov.ui.client.shared.beans.TaskBean;
+import org.overlord.dtgov.ui.client.shared.beans.TaskInboxResultSetBean;
+import org.overlord.dtgov.ui.client.shared.beans.TaskSummaryBean;
+
+/**
+ * A local stand-in for the dtgov task API (the REST endpoint that
+ * {@link org.overlord.dtgov.ui.server.services.tasks.DtGovTaskApiClient}
+ * talks to), backed by the mock task store.  It speaks the same XML as the
+ * real endpoint, so the live task client can be run (and profiled) end to
+ * end without jBPM or a dtgov server.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+@Path("/tasks")
+public class LocalTaskApi {
+
+    private static final int SC_BAD_REQUEST = 400;
+    private static final int SC_NOT_FOUND = 404;
+    private static final int SC_CONFLICT = 409;
+    private static final int SC_INTERNAL_SERVER_ERROR = 500;
+
+    private final MockTaskClient tasks = new MockTaskClient();
+    private final DatatypeFactory datatypeFactory;
+
+    /**
+     * Constructor.
+     */
+    public LocalTaskApi() {
+        try {
+            datatypeFactory = DatatypeFactory.newInstance();
+        } catch (DatatypeConfigurationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Finds a page of tasks.
+     * @param request
+     */
+    @POST
+    @Path("find")
+    @Consumes(MediaType.APPLICATION_XML)
+    @Produces(MediaType.APPLICATION_XML)
+    public FindTasksResponse findTasks(FindTasksRequest request) throws Exception {
+        try {
+            MockTaskSortColumn.fromColumnId(request.getOrderBy());
+        } catch (IllegalArgumentException e) {
+            throw new WebApplicationException(e, SC_BAD_REQUEST);
+        }
+        MockTaskFilterBean filters = new MockTaskFilterBean();
+        if (!request.getPriority().isEmpty()) {
+            filters.setPriority(request.getPriority().get(0));
+        }
+        if (!request.getStatus().isEmpty()) {
+            Set<MockTaskStatus> statuses = EnumSet.noneOf(MockTaskStatus.class);
+            for (StatusType status : request.getStatus()) {
+                try {
+                    statuses.add(MockTaskStatus.valueOf(status.value()));
+                } catch (IllegalArgumentException e) {
+                    // No mock task ever has this status, so it can't match anything
+                }
+            }
+            filters.setStatuses(statuses);
+        }
+        if (request.getDueOnFrom() != null) {
+            filters.setDateDueFrom(request.getDueOnFrom().toGregorianCalendar().getTime());
+        }
+        if (request.getDueOnTo() != null) {
+            filters.setDateDueTo(request.getDueOnTo().toGregorianCalendar().getTime());
+        }
+        TaskInboxResultSetBean results = tasks.getTasks(filters, request.getStartIndex(), request.getEndIndex(),
+                request.getOrderBy(), request.isOrderAscending());
+
+        FindTasksResponse response = new FindTasksResponse();
+        for (TaskSummaryBean task : results.getTasks()) {
+            TaskSummaryType summary = new TaskSummaryType();
+            summary.setId(task.getId());
+            summary.setName(task.getName());
+            summary.setOwner(task.getOwner());
+            summary.setPriority(task.getPriority());
+            summary.setStatus(StatusType.fromValue(task.getStatus()));
+            summary.setDueDate(toXml(task.getDueDate()));
+            response.getTaskSummary().add(summary);
+        }
+        response.setTotalResults(results.getTotalResults());
+        return response;
+    }
+
+    /**
+     * Gets a single task.
+     * @param taskId
+     */
+    @GET
+    @Path("get/{taskId}")
+    @Produces(MediaType.APPLICATION_XML)
+    public TaskType getTask(@PathParam("taskId") String taskId) {
+        return toTaskType(getTaskBean(taskId));
+    }
+
+    /**
+     * Updates a task's description and priority.
+     * @param taskId
+     * @param task
+     */
+    @POST
+    @Path("update/{taskId}")
+    @Consumes(MediaType.APPLICATION_XML)
+    @Produces(MediaType.APPLICATION_XML)
+    public TaskType updateTask(@PathParam("taskId") String taskId, TaskType task) {
+        TaskBean update = new TaskBean();
+        update.setId(getTaskBean(taskId).getId());
+        update.setDescription(task.getDescription());
+        update.setPriority(task.getPriority());
+        tasks.updateTask(update);
+        return toTaskType(getTaskBean(taskId));
+    }
+
+    /**
+     * Claims a task.
+     * @param taskId
+     */
+    @GET
+    @Path("claim/{taskId}")
+    @Produces(MediaType.APPLICATION_XML)
+    public TaskType claimTask(@PathParam("taskId") String taskId) {
+        return executeAction(taskId, TaskActionEnum.claim, null);
+    }
+
+    /**
+     * Releases a task.
+     * @param taskId
+     */
+    @GET
+    @Path("release/{taskId}")
+    @Produces(MediaType.APPLICATION_XML)
+    public TaskType releaseTask(@PathParam("taskId") String taskId) {
+        return executeAction(taskId, TaskActionEnum.release, null);
+    }
+
+    /**
+     * Starts a task.
+     * @param taskId
+     */
+    @GET
+    @Path("start/{taskId}")
+    @Produces(MediaType.APPLICATION_XML)
+    public TaskType startTask(@PathParam("taskId") String taskId) {
+        return executeAction(taskId, TaskActionEnum.start, null);
+    }
+
+    /**
+     * Stops a task.
+     * @param taskId
+     */
+    @GET
+    @Path("stop/{taskId}")
+    @Produces(MediaType.APPLICATION_XML)
+    public TaskType stopTask(@PathParam("taskId") String taskId) {
+        return executeAction(taskId, TaskActionEnum.stop, null);
+    }
+
+    /**
+     * Completes a task.
+     * @param taskId
+     * @param taskData
+     */
+    @POST
+    @Path("complete/{taskId}")
+    @Consumes(MediaType.APPLICATION_XML)
+    @Produces(MediaType.APPLICATION_XML)
+    public TaskType completeTask(@PathParam("taskId") String taskId, TaskDataType taskData) {
+        return executeAction(taskId, TaskActionEnum.complete, taskData);
+    }
+
+    /**
+     * Fails a task.
+     * @param taskId
+     * @param taskData
+     */
+    @POST
+    @Path("fail/{taskId}")
+    @Consumes(MediaType.APPLICATION_XML)
+    @Produces(MediaType.APPLICATION_XML)
+    public TaskType failTask(@PathParam("taskId") String taskId, TaskDataType taskData) {
+        return executeAction(taskId, TaskActionEnum.fail, taskData);
+    }
+
+    /**
+     * Executes an action against the current state of a task.  The mock
+     * client rejects the action (409) if the task isn't in a state that
+     * allows it, or has been changed in the meantime.
+     * @param taskId
+     * @param action
+     * @param taskData
+     */
+    private TaskType executeAction(String taskId, TaskActionEnum action, TaskDataType taskData) {
+        TaskBean current = getTaskBean(taskId);
+        TaskBean task = new TaskBean();
+        task.setId(current.getId());
+        task.setStatus(current.getStatus());
+        for (TaskActionEnum allowed : current.getAllowedActions()) {
+            task.addAllowedAction(allowed);
+        }
+        task.setTaskData(taskData == null ? current.getTaskData() : toMap(taskData));
+        try {
+            return toTaskType(tasks.executeAction(task, action));
+        } catch (MockTaskConflictException e) {
+            throw new WebApplicationException(e, SC_CONFLICT);
+        } catch (MockTaskNotFoundException e) {
+            throw new WebApplicationException(e, SC_NOT_FOUND);
+        } catch (Exception e) {
+            throw new WebApplicationException(e, SC_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * @param taskId
+     * @return the task, never null
+     */
+    private TaskBean getTaskBean(String taskId) {
+        TaskBean task = tasks.getTask(taskId);
+        if (task == null) {
+            throw new WebApplicationException(SC_NOT_FOUND);
+        }
+        return task;
+    }
+
+    /**
+     * @param task
+     */
+    private TaskType toTaskType(TaskBean task) {
+        TaskType rval = new TaskType();
+        rval.setId(task.getId());
+        rval.setName(task.getName());
+        rval.setDescription(task.getDescription());
+        rval.setOwner(task.getOwner());
+        rval.setPriority(task.getPriority());
+        rval.setStatus(StatusType.fromValue(task.getStatus()));
+        rval.setType(task.getType());
+        rval.setDueDate(toXml(task.getDueDate()));
+        if (task.getTaskData() != null) {
+            TaskDataType data = new TaskDataType();
+            for (Map.Entry<String, String> entry : task.getTaskData().entrySet()) {
+                TaskDataType.Entry dataEntry = new TaskDataType.Entry();
+                dataEntry.setKey(entry.getKey());
+                dataEntry.setValue(entry.getValue());
+                data.getEntry().add(dataEntry);
+            }
+            rval.setTaskData(data);
+        }
+        return rval;
+    }
+
+    /**
+     * @param taskData
+     */
+    private static Map<String, String> toMap(TaskDataType taskData) {
+        Map<String, String> rval = new HashMap<String, String>();
+        for (TaskDataType.Entry entry : taskData.getEntry()) {
+            rval.put(entry.getKey(), entry.getValue());
+        }
+        return rval;
+    }
+
+    /**
+     * @param date
+     */
+    private XMLGregorianCalendar toXml(Date date) {
+        if (date == null) {
+            return null;
+        }
+        GregorianCalendar gcal = new GregorianCalendar();
+        gcal.setTime(date);
+        return datatypeFactory.newXMLGregorianCalendar(gcal);
+    }
+
+}
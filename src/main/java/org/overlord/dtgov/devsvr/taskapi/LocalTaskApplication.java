@@ -0,0 +1,46 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.taskapi;
+
+import java.util.Collections;
+import java.util.Set;
+
+import javax.ws.rs.core.Application;
+
+/**
+ * The JAX-RS application for the dev server's local task API.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class LocalTaskApplication extends Application {
+
+    private final Set<Object> singletons = Collections.<Object>singleton(new LocalTaskApi());
+
+    /**
+     * Constructor.
+     */
+    public LocalTaskApplication() {
+    }
+
+    /**
+     * @see javax.ws.rs.core.Application#getSingletons()
+     */
+    @Override
+    public Set<Object> getSingletons() {
+        return singletons;
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.mock;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.overlord.dtgov.ui.client.shared.beans.TaskBean;
+import org.overlord.dtgov.ui.client.shared.beans.TaskInboxFilterBean;
+
+/**
+ * Tests for {@link MockTaskCursor}.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class MockTaskCursorTest {
+
+    @Test
+    public void testRoundTrip() {
+        MockTaskRow row = new MockTaskRow(0, MockTaskStoreTest.task("t1", 2, "ewittman", MockTaskStatus.Reserved, 3)); //$NON-NLS-1$ //$NON-NLS-2$
+        for (MockTaskSortColumn column : MockTaskSortColumn.values()) {
+            for (boolean ascending : new boolean[] { true, false }) {
+                MockTaskCursor cursor = MockTaskCursor.parse(MockTaskCursor.after(row, column, ascending).toString());
+                assertEquals(column, cursor.getColumn());
+                assertEquals(ascending, cursor.isAscending());
+                assertEquals(column.toString(), 0, column.comparator(ascending).compare(cursor.getPosition(), row));
+            }
+        }
+    }
+
+    @Test
+    public void testRoundTripNullValues() {
+        TaskBean task = new TaskBean();
+        task.setId("t1"); //$NON-NLS-1$
+        MockTaskRow row = new MockTaskRow(0, task);
+        for (MockTaskSortColumn column : MockTaskSortColumn.values()) {
+            MockTaskCursor cursor = MockTaskCursor.parse(MockTaskCursor.after(row, column, true).toString());
+            assertEquals(column.toString(), 0, column.comparator(true).compare(cursor.getPosition(), row));
+        }
+    }
+
+    @Test
+    public void testTiesAreBrokenById() {
+        MockTaskStore store = new MockTaskStore();
+        for (String id : new String[] { "t3", "t1", "t4", "t0", "t2" }) { //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+            store.add(MockTaskStoreTest.task(id, 1, null, MockTaskStatus.Ready, 0));
+        }
+        // All values equal: a page size of one has to step through the ties by id, in either direction
+        for (boolean ascending : new boolean[] { true, false }) {
+            List<String> ids = new ArrayList<String>();
+            MockTaskCursor cursor = null;
+            MockTaskStore.Page page;
+            while (!(page = store.queryAfter(new TaskInboxFilterBean(), cursor, 1, MockTaskSortColumn.priority, ascending)).getRows().isEmpty()) {
+                MockTaskRow row = page.getRows().get(0);
+                ids.add(row.getId());
+                cursor = MockTaskCursor.parse(MockTaskCursor.after(row, MockTaskSortColumn.priority, ascending).toString());
+            }
+            assertEquals(Arrays.asList("t0", "t1", "t2", "t3", "t4"), ids); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseRejectsOddLength() {
+        MockTaskCursor.parse("abc"); //$NON-NLS-1$
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseRejectsNonHex() {
+        MockTaskCursor.parse("zz"); //$NON-NLS-1$
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseRejectsTruncatedCursor() {
+        String cursor = MockTaskCursor.after(new MockTaskRow(0, MockTaskStoreTest.task("t1", 2, null, MockTaskStatus.Ready, 0)), //$NON-NLS-1$
+                MockTaskSortColumn.name, true).toString();
+        MockTaskCursor.parse(cursor.substring(0, cursor.length() - 4));
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.mock;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.BitSet;
+import java.util.EnumSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.overlord.dtgov.ui.client.shared.beans.TaskBean;
+
+/**
+ * Tests for {@link MockTaskFilterIndex}.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class MockTaskFilterIndexTest {
+
+    private MockTaskFilterIndex index;
+    private MockTaskRow[] rows;
+
+    /**
+     * Six tasks: 0-5, owned by ewittman (0, 1), kstam (2, 3) or no one (4,
+     * 5), Ready (even) or Reserved (odd).
+     */
+    @Before
+    public void setUp() {
+        index = new MockTaskFilterIndex();
+        rows = new MockTaskRow[6];
+        String[] owners = { "ewittman", "ewittman", "kstam", "kstam", null, null }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        for (int i = 0; i < rows.length; i++) {
+            TaskBean task = MockTaskStoreTest.task(String.valueOf(i), i % 3, owners[i],
+                    i % 2 == 0 ? MockTaskStatus.Ready : MockTaskStatus.Reserved, i);
+            if (i == 3) {
+                task.setDescription("Approve the deployment to production"); //$NON-NLS-1$
+            }
+            rows[i] = new MockTaskRow(i, task);
+            index.add(rows[i]);
+        }
+    }
+
+    @Test
+    public void testIntersection() {
+        MockTaskFilterBean filters = new MockTaskFilterBean();
+        filters.setOwner("kstam"); //$NON-NLS-1$
+        filters.setStatuses(EnumSet.of(MockTaskStatus.Reserved));
+        assertEquals(bits(3), index.match(filters));
+
+        filters.setPriority(1);
+        assertEquals(bits(), index.match(filters));
+    }
+
+    @Test
+    public void testStatusesAreUnioned() {
+        MockTaskFilterBean filters = new MockTaskFilterBean();
+        filters.setOwner("ewittman"); //$NON-NLS-1$
+        filters.setStatuses(EnumSet.of(MockTaskStatus.Ready, MockTaskStatus.Reserved));
+        assertEquals(bits(0, 1), index.match(filters));
+
+        filters.setStatuses(EnumSet.of(MockTaskStatus.Completed));
+        assertEquals(bits(), index.match(filters));
+    }
+
+    @Test
+    public void testUnowned() {
+        MockTaskFilterBean filters = new MockTaskFilterBean();
+        filters.setUnowned(true);
+        assertEquals(bits(4, 5), index.match(filters));
+
+        filters.setStatuses(EnumSet.of(MockTaskStatus.Reserved));
+        assertEquals(bits(5), index.match(filters));
+    }
+
+    @Test
+    public void testTextPrefixes() {
+        MockTaskFilterBean filters = new MockTaskFilterBean();
+        filters.setText("deploy PROD"); //$NON-NLS-1$
+        assertEquals(bits(3), index.match(filters));
+
+        filters.setText("task"); //$NON-NLS-1$
+        assertEquals(bits(0, 1, 2, 3, 4, 5), index.match(filters));
+    }
+
+    @Test
+    public void testUpdate() {
+        TaskBean task = MockTaskStoreTest.task("4", 1, "kstam", MockTaskStatus.InProgress, 4); //$NON-NLS-1$ //$NON-NLS-2$
+        MockTaskRow row = new MockTaskRow(4, task);
+        index.update(rows[4], row);
+
+        MockTaskFilterBean filters = new MockTaskFilterBean();
+        filters.setOwner("kstam"); //$NON-NLS-1$
+        assertEquals(bits(2, 3, 4), index.match(filters));
+        filters = new MockTaskFilterBean();
+        filters.setUnowned(true);
+        assertEquals(bits(5), index.match(filters));
+        filters = new MockTaskFilterBean();
+        filters.setStatuses(EnumSet.of(MockTaskStatus.Ready));
+        assertEquals(bits(0, 2), index.match(filters));
+    }
+
+    @Test
+    public void testMatchDoesNotChangeThePostings() {
+        MockTaskFilterBean filters = new MockTaskFilterBean();
+        filters.setOwner("ewittman"); //$NON-NLS-1$
+        filters.setStatuses(EnumSet.of(MockTaskStatus.Ready));
+        index.match(filters).clear();
+        filters.setStatuses(null);
+        assertEquals(bits(0, 1), index.match(filters));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoIndexedFilters() {
+        index.match(new MockTaskFilterBean());
+    }
+
+    /**
+     * @param ordinals
+     */
+    private static BitSet bits(int... ordinals) {
+        BitSet rval = new BitSet();
+        for (int ordinal : ordinals) {
+            rval.set(ordinal);
+        }
+        return rval;
+    }
+
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.overlord.dtgov.devsvr.mock;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.overlord.dtgov.ui.client.shared.beans.TaskBean;
+import org.overlord.dtgov.ui.client.shared.beans.TaskInboxFilterBean;
+
+/**
+ * Tests for {@link MockTaskStore#query} and {@link MockTaskStore#queryAfter}.
+ *
+ * @author eric.wittmann@redhat.com
+ */
+public class MockTaskStoreTest {
+
+    private MockTaskStore store;
+
+    /**
+     * Ten tasks: t0-t9, priorities 0-2 (t0, t3, t6 and t9 have priority 0),
+     * owned by ewittman (odd ids) or no one (even ids), due on consecutive
+     * days.
+     */
+    @Before
+    public void setUp() {
+        store = new MockTaskStore();
+        for (int i = 0; i < 10; i++) {
+            store.add(task("t" + i, i % 3, i % 2 == 1 ? "ewittman" : null, MockTaskStatus.Ready, i)); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+    }
+
+    @Test
+    public void testQuerySortsAndPages() {
+        MockTaskStore.Page page = store.query(new TaskInboxFilterBean(), 0, 3, MockTaskSortColumn.priority, true);
+        assertEquals(10, page.getTotalResults());
+        assertEquals(Arrays.asList("t0", "t3", "t6", "t9"), ids(page)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+
+        page = store.query(new TaskInboxFilterBean(), 4, 6, MockTaskSortColumn.priority, true);
+        assertEquals(Arrays.asList("t1", "t4", "t7"), ids(page)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+
+    @Test
+    public void testQueryDescendingBreaksTiesByIdAscending() {
+        MockTaskStore.Page page = store.query(new TaskInboxFilterBean(), 0, 4, MockTaskSortColumn.priority, false);
+        assertEquals(Arrays.asList("t2", "t5", "t8", "t1", "t4"), ids(page)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+    }
+
+    @Test
+    public void testQueryFilters() {
+        TaskInboxFilterBean filters = new TaskInboxFilterBean();
+        filters.setPriority(0);
+        MockTaskStore.Page page = store.query(filters, 0, 1, MockTaskSortColumn.dueOn, false);
+        assertEquals(4, page.getTotalResults());
+        assertEquals(Arrays.asList("t9", "t6"), ids(page)); //$NON-NLS-1$ //$NON-NLS-2$
+
+        filters = new TaskInboxFilterBean();
+        filters.setDateDueFrom(day(2));
+        filters.setDateDueTo(day(4));
+        page = store.query(filters, 0, 9, MockTaskSortColumn.dueOn, true);
+        assertEquals(Arrays.asList("t2", "t3", "t4"), ids(page)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+        MockTaskFilterBean mfilters = new MockTaskFilterBean();
+        mfilters.setUnowned(true);
+        mfilters.setPriority(0);
+        page = store.query(mfilters, 0, 9, MockTaskSortColumn.name, true);
+        assertEquals(Arrays.asList("t0", "t6"), ids(page)); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    @Test
+    public void testUpdateRepositionsTask() {
+        // Builds the priority index...
+        store.query(new TaskInboxFilterBean(), 0, 9, MockTaskSortColumn.priority, true);
+        // ...which must then follow the change
+        store.update(task("t9", 2, null, MockTaskStatus.Ready, 9)); //$NON-NLS-1$
+        store.update(task("t2", 0, null, MockTaskStatus.Ready, 2)); //$NON-NLS-1$
+        MockTaskStore.Page page = store.query(new TaskInboxFilterBean(), 0, 9, MockTaskSortColumn.priority, true);
+        assertEquals(Arrays.asList("t0", "t2", "t3", "t6", "t1", "t4", "t7", "t5", "t8", "t9"), ids(page)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$
+
+        TaskInboxFilterBean filters = new TaskInboxFilterBean();
+        filters.setPriority(2);
+        assertEquals(3, store.query(filters, 0, 9, MockTaskSortColumn.priority, true).getTotalResults());
+    }
+
+    @Test
+    public void testQueryAfterMatchesQuery() {
+        for (MockTaskSortColumn column : MockTaskSortColumn.values()) {
+            for (boolean ascending : new boolean[] { true, false }) {
+                TaskInboxFilterBean[] filterSets = { new TaskInboxFilterBean(), new MockTaskFilterBean() };
+                ((MockTaskFilterBean) filterSets[1]).setOwner("ewittman"); //$NON-NLS-1$
+                for (TaskInboxFilterBean filters : filterSets) {
+                    List<String> expected = ids(store.query(filters, 0, 9, column, ascending));
+                    assertEquals(column + " " + ascending, expected, pageThrough(filters, 3, column, ascending)); //$NON-NLS-1$
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testQueryAfterIsStableUnderChanges() {
+        MockTaskStore.Page first = store.queryAfter(new TaskInboxFilterBean(), null, 3, MockTaskSortColumn.name, true);
+        assertEquals(Arrays.asList("t0", "t1", "t2"), ids(first)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        MockTaskCursor cursor = MockTaskCursor.after(last(first), MockTaskSortColumn.name, true);
+
+        // A task from the first page is renamed so it sorts first - the next page doesn't shift
+        TaskBean renamed = task("t1", 1, "ewittman", MockTaskStatus.Ready, 1); //$NON-NLS-1$ //$NON-NLS-2$
+        renamed.setName("A task"); //$NON-NLS-1$
+        store.update(renamed);
+        MockTaskStore.Page next = store.queryAfter(new TaskInboxFilterBean(), cursor, 3, MockTaskSortColumn.name, true);
+        assertEquals(Arrays.asList("t3", "t4", "t5"), ids(next)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testQueryAfterRejectsCursorForOtherOrder() {
+        MockTaskStore.Page first = store.queryAfter(new TaskInboxFilterBean(), null, 3, MockTaskSortColumn.name, true);
+        MockTaskCursor cursor = MockTaskCursor.after(last(first), MockTaskSortColumn.name, true);
+        store.queryAfter(new TaskInboxFilterBean(), cursor, 3, MockTaskSortColumn.name, false);
+    }
+
+    /**
+     * Pages through the whole inbox with cursors.
+     * @param filters
+     * @param pageSize
+     * @param column
+     * @param ascending
+     */
+    private List<String> pageThrough(TaskInboxFilterBean filters, int pageSize, MockTaskSortColumn column,
+            boolean ascending) {
+        List<String> rval = new ArrayList<String>();
+        MockTaskCursor cursor = null;
+        while (true) {
+            MockTaskStore.Page page = store.queryAfter(filters, cursor, pageSize, column, ascending);
+            rval.addAll(ids(page));
+            if (page.getRows().size() < pageSize) {
+                return rval;
+            }
+            cursor = MockTaskCursor.parse(MockTaskCursor.after(last(page), column, ascending).toString());
+        }
+    }
+
+    /**
+     * @param id
+     * @param priority
+     * @param owner
+     * @param status
+     * @param day
+     */
+    static TaskBean task(String id, int priority, String owner, MockTaskStatus status, int day) {
+        TaskBean task = new TaskBean();
+        task.setId(id);
+        task.setName("Task " + id); //$NON-NLS-1$
+        task.setPriority(priority);
+        task.setOwner(owner);
+        task.setStatus(status.toString());
+        task.setType("mock-task"); //$NON-NLS-1$
+        task.setDueDate(day(day));
+        return task;
+    }
+
+    /**
+     * @param day
+     */
+    static Date day(int day) {
+        return new Date(1380000000000L + day * 86400000L);
+    }
+
+    /**
+     * @param page
+     */
+    private static MockTaskRow last(MockTaskStore.Page page) {
+        return page.getRows().get(page.getRows().size() - 1);
+    }
+
+    /**
+     * @param page
+     */
+    private static List<String> ids(MockTaskStore.Page page) {
+        List<String> rval = new ArrayList<String>();
+        for (MockTaskRow row : page.getRows()) {
+            rval.add(row.getId());
+        }
+        return rval;
+    }
+
+}